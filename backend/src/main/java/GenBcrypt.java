@@ -1,10 +1,20 @@
 import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
 
+/**
+ * Generate a BCrypt hash for manual user provisioning.
+ * Usage: GenBcrypt [password] [strength]
+ * Use the strength logged by "BCrypt calibration" at application startup; hashes with a different
+ * cost still work and are rehashed to the current strength on the user's next login.
+ */
 public class GenBcrypt {
     public static void main(String[] args) {
-        BCryptPasswordEncoder encoder = new BCryptPasswordEncoder();
-        String password = "aa1010";
+        String password = args.length > 0 ? args[0] : "aa1010";
+        int strength = args.length > 1 ? Integer.parseInt(args[1]) : 10;
+        BCryptPasswordEncoder encoder = new BCryptPasswordEncoder(strength);
+        long start = System.nanoTime();
         String hash = encoder.encode(password);
+        long elapsedMs = (System.nanoTime() - start) / 1_000_000;
         System.out.println(hash);
+        System.out.println("strength=" + strength + ", took " + elapsedMs + "ms");
     }
 }
@@ -0,0 +1,26 @@
+package com.bcbbs.backend.captcha;
+
+import java.util.Random;
+
+/**
+ * Generates captcha codes.
+ */
+public final class CaptchaCodes {
+
+    public static final int LENGTH = 4;
+    private static final String DIGITS = "0123456789";
+
+    private CaptchaCodes() {
+    }
+
+    /**
+     * New random numeric code of {@link #LENGTH} digits.
+     */
+    public static String generate(Random random) {
+        char[] code = new char[LENGTH];
+        for (int i = 0; i < LENGTH; i++) {
+            code[i] = DIGITS.charAt(random.nextInt(DIGITS.length()));
+        }
+        return new String(code);
+    }
+}
@@ -0,0 +1,14 @@
+package com.bcbbs.backend.captcha;
+
+/**
+ * Pre-rendered captcha: the code and its PNG bytes.
+ * The buffer may be larger than the image; only the first {@code length} bytes are valid.
+ * Hand the image back with {@link CaptchaImagePool#release(CaptchaImage)} once it has been written,
+ * so its buffer can be reused.
+ *
+ * @param code   captcha code drawn in the image
+ * @param buffer PNG bytes
+ * @param length number of valid bytes in the buffer
+ */
+public record CaptchaImage(String code, byte[] buffer, int length) {
+}
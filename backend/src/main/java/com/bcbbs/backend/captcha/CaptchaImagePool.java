@@ -0,0 +1,153 @@
+package com.bcbbs.backend.captcha;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import javax.imageio.ImageIO;
+import java.security.SecureRandom;
+import java.util.Arrays;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Pool of pre-rendered captcha images, kept full by a background producer thread.
+ * Taking an image is a single queue poll; rendering happens off the request path. Image buffers
+ * are recycled: once a response has been written the caller releases the image and the producer
+ * reuses its byte array for the next render.
+ * <p>
+ * If a traffic spike drains the pool, requests fall back to rendering inline and are counted as
+ * misses, so "captcha.image.pool.misses" shows when the pool needs to be larger.
+ */
+@Component
+@ConditionalOnProperty(name = "captcha.image.enabled", havingValue = "true")
+public class CaptchaImagePool {
+
+    private static final Logger logger = LoggerFactory.getLogger(CaptchaImagePool.class);
+
+    private static final long ERROR_BACKOFF_MILLIS = 1000L;
+
+    private final BlockingQueue<CaptchaImage> ready;
+    private final BlockingQueue<byte[]> spareBuffers;
+    private final SecureRandom secureRandom = new SecureRandom();
+
+    private final Counter rendered;
+    private final Counter misses;
+    private final Timer renderTimer;
+
+    private volatile boolean running;
+    private Thread producer;
+
+    public CaptchaImagePool(MeterRegistry meterRegistry,
+                            @Value("${captcha.image.pool-size:512}") int poolSize) {
+        this.ready = new ArrayBlockingQueue<>(poolSize);
+        this.spareBuffers = new ArrayBlockingQueue<>(poolSize);
+
+        Gauge.builder("captcha.image.pool.depth", ready, BlockingQueue::size)
+                .description("Pre-rendered captcha images ready to hand out")
+                .register(meterRegistry);
+        this.rendered = Counter.builder("captcha.image.rendered")
+                .description("Captcha images rendered")
+                .register(meterRegistry);
+        this.misses = Counter.builder("captcha.image.pool.misses")
+                .description("Captcha requests that found the pool empty and rendered inline")
+                .register(meterRegistry);
+        this.renderTimer = Timer.builder("captcha.image.render")
+                .description("Time to render and encode one captcha image")
+                .register(meterRegistry);
+    }
+
+    @PostConstruct
+    public void start() {
+        // Encode straight to memory instead of through ImageIO's temp-file cache
+        ImageIO.setUseCache(false);
+        running = true;
+        producer = new Thread(this::refill, "captcha-image-producer");
+        producer.setDaemon(true);
+        producer.start();
+    }
+
+    @PreDestroy
+    public void stop() {
+        running = false;
+        if (producer != null) {
+            producer.interrupt();
+        }
+    }
+
+    /**
+     * Take a rendered image, rendering one inline if the pool is empty.
+     */
+    public CaptchaImage take() {
+        CaptchaImage image = ready.poll();
+        if (image != null) {
+            return image;
+        }
+        misses.increment();
+        CaptchaImageRenderer renderer = new CaptchaImageRenderer(secureRandom);
+        String code = CaptchaCodes.generate(secureRandom);
+        long start = System.nanoTime();
+        renderer.render(code);
+        renderTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        rendered.increment();
+        return new CaptchaImage(code, Arrays.copyOf(renderer.buffer(), renderer.length()), renderer.length());
+    }
+
+    /**
+     * Hand an image's buffer back for reuse. The image must not be read afterwards.
+     */
+    public void release(CaptchaImage image) {
+        spareBuffers.offer(image.buffer());
+    }
+
+    /**
+     * Number of images ready to hand out.
+     */
+    public int depth() {
+        return ready.size();
+    }
+
+    /**
+     * Producer loop: render into the thread's own renderer, copy into a recycled buffer and block
+     * while the pool is full.
+     */
+    private void refill() {
+        CaptchaImageRenderer renderer = new CaptchaImageRenderer(secureRandom);
+        while (running) {
+            try {
+                String code = CaptchaCodes.generate(secureRandom);
+                long start = System.nanoTime();
+                renderer.render(code);
+                int length = renderer.length();
+                byte[] buffer = spareBuffers.poll();
+                if (buffer == null || buffer.length < length) {
+                    buffer = new byte[length];
+                }
+                System.arraycopy(renderer.buffer(), 0, buffer, 0, length);
+                renderTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+                rendered.increment();
+                ready.put(new CaptchaImage(code, buffer, length));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (RuntimeException e) {
+                logger.warn("Captcha image render failed - Error: {}", e.getMessage());
+                try {
+                    Thread.sleep(ERROR_BACKOFF_MILLIS);
+                } catch (InterruptedException interrupted) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            }
+        }
+    }
+}
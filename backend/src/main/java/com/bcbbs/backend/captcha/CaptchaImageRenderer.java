@@ -0,0 +1,111 @@
+package com.bcbbs.backend.captcha;
+
+import javax.imageio.ImageIO;
+import java.awt.BasicStroke;
+import java.awt.Color;
+import java.awt.Font;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.geom.AffineTransform;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Random;
+
+/**
+ * Draws captcha codes as PNG images.
+ * The canvas and the encoding buffer are reused between renders, so one instance must only be
+ * used by a single thread at a time.
+ */
+public class CaptchaImageRenderer {
+
+    public static final int WIDTH = 120;
+    public static final int HEIGHT = 40;
+
+    private static final Color[] COLORS = {
+            new Color(0xFF6B6B), new Color(0x4ECDC4), new Color(0x45B7D1),
+            new Color(0x96CEB4), new Color(0xE0A800), new Color(0xDDA0DD)
+    };
+    private static final int NOISE_LINES = 6;
+
+    private final BufferedImage canvas = new BufferedImage(WIDTH, HEIGHT, BufferedImage.TYPE_INT_RGB);
+    private final ExposedByteArrayOutputStream encoded = new ExposedByteArrayOutputStream(4096);
+    private final Font font = new Font(Font.SANS_SERIF, Font.BOLD, 28);
+    private final Random random;
+
+    public CaptchaImageRenderer(Random random) {
+        this.random = random;
+    }
+
+    /**
+     * Render the code and encode it as PNG.
+     * The result lives in an internal buffer that is overwritten by the next call;
+     * read it through {@link #buffer()} and {@link #length()} before rendering again.
+     */
+    public void render(String code) {
+        Graphics2D g = canvas.createGraphics();
+        try {
+            g.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+            g.setColor(new Color(0xF5F5F5));
+            g.fillRect(0, 0, WIDTH, HEIGHT);
+
+            // Noise lines behind the glyphs
+            g.setStroke(new BasicStroke(1.2f));
+            for (int i = 0; i < NOISE_LINES; i++) {
+                g.setColor(COLORS[random.nextInt(COLORS.length)]);
+                g.drawLine(random.nextInt(WIDTH), random.nextInt(HEIGHT), random.nextInt(WIDTH), random.nextInt(HEIGHT));
+            }
+
+            // Each character slightly rotated and shifted
+            g.setFont(font);
+            int step = WIDTH / (code.length() + 1);
+            AffineTransform base = g.getTransform();
+            for (int i = 0; i < code.length(); i++) {
+                int x = step / 2 + i * step + random.nextInt(6);
+                int y = HEIGHT - 10 + random.nextInt(5) - 2;
+                g.setColor(COLORS[random.nextInt(COLORS.length)].darker());
+                g.rotate(Math.toRadians(random.nextInt(41) - 20), x, y);
+                g.drawString(String.valueOf(code.charAt(i)), x, y);
+                g.setTransform(base);
+            }
+        } finally {
+            g.dispose();
+        }
+
+        encoded.reset();
+        try {
+            ImageIO.write(canvas, "png", encoded);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot encode captcha image", e);
+        }
+    }
+
+    /**
+     * Internal buffer holding the last encoded image.
+     */
+    public byte[] buffer() {
+        return encoded.buffer();
+    }
+
+    /**
+     * Number of valid bytes in {@link #buffer()}.
+     */
+    public int length() {
+        return encoded.size();
+    }
+
+    /**
+     * ByteArrayOutputStream that exposes its backing array instead of copying it.
+     */
+    private static final class ExposedByteArrayOutputStream extends ByteArrayOutputStream {
+
+        private ExposedByteArrayOutputStream(int size) {
+            super(size);
+        }
+
+        private byte[] buffer() {
+            return buf;
+        }
+    }
+}
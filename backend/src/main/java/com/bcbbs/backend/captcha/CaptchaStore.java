@@ -0,0 +1,24 @@
+package com.bcbbs.backend.captcha;
+
+import java.time.Instant;
+
+/**
+ * Storage backend for issued captchas.
+ * Implementations must make {@link #consume(String, String)} atomic: a captcha can be consumed at most once,
+ * even under concurrent validation requests.
+ * Selected with "captcha.store" (memory by default, jpa for multi-node deployments sharing one database).
+ */
+public interface CaptchaStore {
+
+    /**
+     * Store a captcha code and return the token that references it.
+     */
+    String issue(String code, Instant expiresAt);
+
+    /**
+     * Consume the captcha if the token exists, is unexpired, unused and the code matches.
+     *
+     * @return true if the captcha was valid and is now consumed
+     */
+    boolean consume(String token, String code);
+}
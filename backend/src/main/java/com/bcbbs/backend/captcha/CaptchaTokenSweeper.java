@@ -0,0 +1,89 @@
+package com.bcbbs.backend.captcha;
+
+import com.bcbbs.backend.repository.CaptchaTokenRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+
+/**
+ * Periodically purges expired and consumed rows from captcha_tokens.
+ * Rows are deleted in small batches, each in its own short transaction, so the sweep never holds
+ * locks on a large range of the table. Only active with the JPA captcha store.
+ */
+@Component
+@ConditionalOnProperty(name = "captcha.store", havingValue = "jpa")
+public class CaptchaTokenSweeper {
+
+    private static final Logger logger = LoggerFactory.getLogger(CaptchaTokenSweeper.class);
+
+    private final CaptchaTokenRepository captchaTokenRepository;
+    private final int batchSize;
+    private final int maxBatches;
+
+    private final Counter expiredPurged;
+    private final Counter usedPurged;
+    private final Timer sweepTimer;
+
+    public CaptchaTokenSweeper(CaptchaTokenRepository captchaTokenRepository,
+                               MeterRegistry meterRegistry,
+                               @Value("${captcha.purge.batch-size:500}") int batchSize,
+                               @Value("${captcha.purge.max-batches:200}") int maxBatches) {
+        this.captchaTokenRepository = captchaTokenRepository;
+        this.batchSize = batchSize;
+        this.maxBatches = maxBatches;
+        this.expiredPurged = Counter.builder("captcha.purge.rows")
+                .description("Captcha rows deleted by the purge job")
+                .tag("reason", "expired")
+                .register(meterRegistry);
+        this.usedPurged = Counter.builder("captcha.purge.rows")
+                .description("Captcha rows deleted by the purge job")
+                .tag("reason", "used")
+                .register(meterRegistry);
+        this.sweepTimer = Timer.builder("captcha.purge.duration")
+                .description("Duration of one captcha purge sweep")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Run one sweep; the per-sweep batch limit keeps a large backlog from monopolizing the scheduler.
+     */
+    @Scheduled(fixedDelayString = "${captcha.purge.interval-ms:60000}")
+    public void sweep() {
+        sweepTimer.record(() -> {
+            LocalDateTime cutoff = LocalDateTime.now();
+            int expired = 0;
+            int used = 0;
+            int batches = 0;
+            try {
+                int deleted;
+                do {
+                    deleted = captchaTokenRepository.deleteExpiredBatch(cutoff, batchSize);
+                    expired += deleted;
+                    batches++;
+                } while (deleted == batchSize && batches < maxBatches);
+
+                do {
+                    deleted = captchaTokenRepository.deleteUsedBatch(batchSize);
+                    used += deleted;
+                    batches++;
+                } while (deleted == batchSize && batches < maxBatches);
+            } catch (RuntimeException e) {
+                logger.warn("Captcha purge interrupted - Error: {}", e.getMessage());
+            } finally {
+                expiredPurged.increment(expired);
+                usedPurged.increment(used);
+            }
+            if (expired + used > 0) {
+                logger.info("Captcha purge - expired: {}, used: {}, batches: {}", expired, used, batches);
+            }
+        });
+    }
+}
@@ -0,0 +1,130 @@
+package com.bcbbs.backend.captcha;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Hierarchical timing wheel for expiring items with O(1) insertion and amortized O(1) expiry.
+ * Level 0 has one slot per tick; each higher level covers a whole revolution of the level below in
+ * one slot. Items far in the future sit in a coarse slot and are cascaded down as time approaches.
+ * <p>
+ * Not thread-safe: callers guard each wheel with their own lock.
+ *
+ * @param <T> type of the scheduled item
+ */
+public class HierarchicalTimingWheel<T> {
+
+    // 64 slots per level; with three levels and 1s ticks this covers about 72 hours
+    private static final int SLOT_BITS = 6;
+    private static final int WHEEL_SIZE = 1 << SLOT_BITS;
+    private static final int SLOT_MASK = WHEEL_SIZE - 1;
+
+    private final long tickMillis;
+    private final int levels;
+    // slots[level][slot], allocated lazily
+    private final List<Entry<T>>[][] slots;
+
+    // Index of the last processed tick
+    private long currentTick;
+    private int size;
+
+    @SuppressWarnings("unchecked")
+    public HierarchicalTimingWheel(long tickMillis, int levels, long startMillis) {
+        if (tickMillis <= 0 || levels <= 0) {
+            throw new IllegalArgumentException("tickMillis and levels must be positive");
+        }
+        this.tickMillis = tickMillis;
+        this.levels = levels;
+        this.slots = new List[levels][WHEEL_SIZE];
+        this.currentTick = startMillis / tickMillis;
+    }
+
+    /**
+     * Schedule an item to expire at the given time.
+     *
+     * @return false if the deadline has already passed; the item is not scheduled in that case
+     */
+    public boolean schedule(T item, long deadlineMillis) {
+        // First tick at or after the deadline
+        long tick = (deadlineMillis + tickMillis - 1) / tickMillis;
+        if (tick <= currentTick) {
+            return false;
+        }
+        place(new Entry<>(item, tick));
+        size++;
+        return true;
+    }
+
+    /**
+     * Advance the wheel to the given time and hand every item that became due to the consumer.
+     */
+    public void advance(long nowMillis, Consumer<T> onExpired) {
+        long targetTick = nowMillis / tickMillis;
+        while (currentTick < targetTick) {
+            currentTick++;
+
+            // Cascade coarse slots whose window starts at this tick, highest level first
+            for (int level = levels - 1; level >= 1; level--) {
+                int shift = level * SLOT_BITS;
+                if ((currentTick & ((1L << shift) - 1)) == 0) {
+                    List<Entry<T>> bucket = takeSlot(level, (int) ((currentTick >>> shift) & SLOT_MASK));
+                    if (bucket != null) {
+                        bucket.forEach(this::place);
+                    }
+                }
+            }
+
+            List<Entry<T>> due = takeSlot(0, (int) (currentTick & SLOT_MASK));
+            if (due != null) {
+                size -= due.size();
+                for (Entry<T> entry : due) {
+                    onExpired.accept(entry.item);
+                }
+            }
+        }
+    }
+
+    /**
+     * Number of scheduled items.
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Put an entry on the lowest level whose range still covers its tick.
+     */
+    private void place(Entry<T> entry) {
+        for (int level = 0; level < levels; level++) {
+            int shift = level * SLOT_BITS;
+            long distance = (entry.tick >>> shift) - (currentTick >>> shift);
+            if (distance < WHEEL_SIZE) {
+                addToSlot(level, (int) ((entry.tick >>> shift) & SLOT_MASK), entry);
+                return;
+            }
+        }
+        // Beyond the top level: park in the furthest top-level slot; it is re-placed when that slot cascades
+        int top = levels - 1;
+        int shift = top * SLOT_BITS;
+        addToSlot(top, (int) (((currentTick >>> shift) + SLOT_MASK) & SLOT_MASK), entry);
+    }
+
+    private void addToSlot(int level, int slot, Entry<T> entry) {
+        List<Entry<T>> bucket = slots[level][slot];
+        if (bucket == null) {
+            bucket = new ArrayList<>();
+            slots[level][slot] = bucket;
+        }
+        bucket.add(entry);
+    }
+
+    private List<Entry<T>> takeSlot(int level, int slot) {
+        List<Entry<T>> bucket = slots[level][slot];
+        slots[level][slot] = null;
+        return bucket;
+    }
+
+    private record Entry<T>(T item, long tick) {
+    }
+}
@@ -0,0 +1,136 @@
+package com.bcbbs.backend.captcha;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Instant;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Default captcha store: keeps captchas in memory, so issuing and validating never touch the database.
+ * Entries are spread over lock-striped shards; each shard owns a hierarchical timing wheel that
+ * removes its entries when they expire. Suitable for single-node deployments.
+ */
+@Component
+@ConditionalOnProperty(name = "captcha.store", havingValue = "memory", matchIfMissing = true)
+public class InMemoryCaptchaStore implements CaptchaStore {
+
+    // Expiry resolution; captchas live for minutes, so one second is plenty
+    private static final long TICK_MILLIS = 1000L;
+    private static final int WHEEL_LEVELS = 3;
+
+    private final Shard[] shards;
+    private final int shardMask;
+
+    public InMemoryCaptchaStore(@Value("${captcha.memory.shards:16}") int shardCount) {
+        // Round up to a power of two so the shard can be picked with a mask
+        int count = Integer.highestOneBit(Math.max(1, shardCount - 1)) << 1;
+        this.shards = new Shard[count];
+        this.shardMask = count - 1;
+        long now = System.currentTimeMillis();
+        for (int i = 0; i < count; i++) {
+            shards[i] = new Shard(now);
+        }
+    }
+
+    @Override
+    public String issue(String code, Instant expiresAt) {
+        String token = UUID.randomUUID().toString().replace("-", "");
+        long expiresAtMillis = expiresAt.toEpochMilli();
+        Shard shard = shardFor(token);
+        shard.lock.lock();
+        try {
+            if (shard.wheel.schedule(token, expiresAtMillis)) {
+                shard.entries.put(token, new Entry(code, expiresAtMillis));
+            }
+        } finally {
+            shard.lock.unlock();
+        }
+        return token;
+    }
+
+    @Override
+    public boolean consume(String token, String code) {
+        if (token == null || code == null) {
+            return false;
+        }
+        Shard shard = shardFor(token);
+        shard.lock.lock();
+        try {
+            Entry entry = shard.entries.get(token);
+            if (entry == null) {
+                return false;
+            }
+            if (entry.expiresAtMillis <= System.currentTimeMillis()) {
+                shard.entries.remove(token);
+                return false;
+            }
+            if (!entry.code.equals(code)) {
+                return false;
+            }
+            shard.entries.remove(token);
+            return true;
+        } finally {
+            shard.lock.unlock();
+        }
+    }
+
+    /**
+     * Advance every shard's timing wheel and drop the captchas that expired.
+     */
+    @Scheduled(fixedDelay = TICK_MILLIS)
+    public void expire() {
+        long now = System.currentTimeMillis();
+        for (Shard shard : shards) {
+            shard.lock.lock();
+            try {
+                shard.wheel.advance(now, shard.entries::remove);
+            } finally {
+                shard.lock.unlock();
+            }
+        }
+    }
+
+    /**
+     * Number of captchas currently held, for monitoring.
+     */
+    public int size() {
+        int total = 0;
+        for (Shard shard : shards) {
+            shard.lock.lock();
+            try {
+                total += shard.entries.size();
+            } finally {
+                shard.lock.unlock();
+            }
+        }
+        return total;
+    }
+
+    private Shard shardFor(String token) {
+        int hash = token.hashCode();
+        return shards[(hash ^ (hash >>> 16)) & shardMask];
+    }
+
+    /**
+     * One lock stripe: its entries and the wheel that expires them, guarded by the same lock.
+     */
+    private static final class Shard {
+
+        private final ReentrantLock lock = new ReentrantLock();
+        private final Map<String, Entry> entries = new HashMap<>();
+        private final HierarchicalTimingWheel<String> wheel;
+
+        private Shard(long startMillis) {
+            this.wheel = new HierarchicalTimingWheel<>(TICK_MILLIS, WHEEL_LEVELS, startMillis);
+        }
+    }
+
+    private record Entry(String code, long expiresAtMillis) {
+    }
+}
@@ -0,0 +1,13 @@
+package com.bcbbs.backend.captcha;
+
+import java.time.Instant;
+
+/**
+ * Captcha image handed out to a client, together with the token that validates it.
+ *
+ * @param token     token registered in the {@link CaptchaStore}
+ * @param expiresAt when the token stops being accepted
+ * @param image     rendered image; release it to the pool once written
+ */
+public record IssuedCaptchaImage(String token, Instant expiresAt, CaptchaImage image) {
+}
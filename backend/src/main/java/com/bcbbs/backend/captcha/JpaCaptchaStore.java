@@ -0,0 +1,47 @@
+package com.bcbbs.backend.captcha;
+
+import com.bcbbs.backend.entity.CaptchaToken;
+import com.bcbbs.backend.repository.CaptchaTokenRepository;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.UUID;
+
+/**
+ * Captcha store backed by the captcha_tokens table.
+ * Use it for multi-node deployments where a captcha issued by one node may be validated by another.
+ */
+@Component
+@ConditionalOnProperty(name = "captcha.store", havingValue = "jpa")
+@RequiredArgsConstructor
+public class JpaCaptchaStore implements CaptchaStore {
+
+    private final CaptchaTokenRepository captchaTokenRepository;
+
+    @Override
+    @SuppressWarnings("null")
+    public String issue(String code, Instant expiresAt) {
+        String token = UUID.randomUUID().toString().replace("-", "");
+        CaptchaToken captchaToken = CaptchaToken.builder()
+                .token(token)
+                .code(code)
+                .expiresAt(LocalDateTime.ofInstant(expiresAt, ZoneId.systemDefault()))
+                .used(false)
+                .build();
+        captchaTokenRepository.save(captchaToken);
+        return token;
+    }
+
+    @Override
+    public boolean consume(String token, String code) {
+        if (token == null || code == null) {
+            return false;
+        }
+        // Single round trip: existence, code, expiry and "unused" are all checked by the UPDATE itself
+        return captchaTokenRepository.consume(token, code, LocalDateTime.now()) == 1;
+    }
+}
@@ -0,0 +1,103 @@
+package com.bcbbs.backend.captcha;
+
+import java.util.Arrays;
+
+/**
+ * Fixed-size replay filter built from a rotating pair of Bloom filters.
+ * Every recorded id stays detectable for at least one full window: new ids go into the current
+ * filter, and at each rotation the current filter becomes the previous one while the old previous
+ * filter is cleared and reused. Memory stays constant no matter how many ids are recorded.
+ * <p>
+ * False positives are possible (an unseen id reported as seen) at a rate set by the filter size;
+ * false negatives within the window are not.
+ */
+public class RotatingReplayFilter {
+
+    private static final int HASH_FUNCTIONS = 5;
+
+    private final long windowMillis;
+    private final long bitMask;
+
+    private long[] current;
+    private long[] previous;
+    private long windowStart;
+
+    /**
+     * @param bitsLog2     log2 of the number of bits per filter (e.g. 24 = 2 MiB per filter)
+     * @param windowMillis how long each filter stays current; must be at least the token lifetime
+     * @param nowMillis    start of the first window
+     */
+    public RotatingReplayFilter(int bitsLog2, long windowMillis, long nowMillis) {
+        if (bitsLog2 < 6 || bitsLog2 > 30) {
+            throw new IllegalArgumentException("bitsLog2 must be between 6 and 30");
+        }
+        long bits = 1L << bitsLog2;
+        this.bitMask = bits - 1;
+        this.windowMillis = windowMillis;
+        this.current = new long[(int) (bits >>> 6)];
+        this.previous = new long[(int) (bits >>> 6)];
+        this.windowStart = nowMillis;
+    }
+
+    /**
+     * Record the id and report whether it was new.
+     * Check and insert happen atomically, so two concurrent calls with the same id never both return true.
+     *
+     * @return true if the id had not been seen in the current or previous window
+     */
+    public synchronized boolean markIfAbsent(long id, long nowMillis) {
+        rotateIfNeeded(nowMillis);
+        if (contains(current, id) || contains(previous, id)) {
+            return false;
+        }
+        add(current, id);
+        return true;
+    }
+
+    private void rotateIfNeeded(long nowMillis) {
+        long elapsed = nowMillis - windowStart;
+        if (elapsed < windowMillis) {
+            return;
+        }
+        long[] recycled = previous;
+        Arrays.fill(recycled, 0L);
+        if (elapsed >= 2 * windowMillis) {
+            // Idle for more than two windows: both filters are stale
+            Arrays.fill(current, 0L);
+        }
+        previous = current;
+        current = recycled;
+        windowStart = nowMillis - (elapsed % windowMillis);
+    }
+
+    private boolean contains(long[] filter, long id) {
+        long h1 = mix(id);
+        long h2 = mix(h1) | 1L;
+        for (int i = 0; i < HASH_FUNCTIONS; i++) {
+            long bit = (h1 + i * h2) & bitMask;
+            if ((filter[(int) (bit >>> 6)] & (1L << bit)) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void add(long[] filter, long id) {
+        long h1 = mix(id);
+        long h2 = mix(h1) | 1L;
+        for (int i = 0; i < HASH_FUNCTIONS; i++) {
+            long bit = (h1 + i * h2) & bitMask;
+            filter[(int) (bit >>> 6)] |= 1L << bit;
+        }
+    }
+
+    /**
+     * 64-bit finalizer (SplitMix64) so that consecutive or low-entropy ids spread over the whole filter.
+     */
+    private static long mix(long value) {
+        long z = value + 0x9E3779B97F4A7C15L;
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+}
@@ -0,0 +1,126 @@
+package com.bcbbs.backend.captcha;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.Base64;
+
+/**
+ * Stateless captcha store: the token itself carries the expiry, a random nonce and an HMAC over
+ * them and the code, so issuing a captcha needs no storage at all.
+ * Replay within the token lifetime is blocked by a fixed-size {@link RotatingReplayFilter} keyed by the nonce.
+ * <p>
+ * Token layout (base64url, 44 chars): version(1) | expiresAtEpochSeconds(8) | nonce(8) | mac(16).
+ * Nodes sharing "captcha.signed.secret" accept each other's tokens, but replay protection is per node.
+ */
+@Component
+@ConditionalOnProperty(name = "captcha.store", havingValue = "signed")
+public class SignedCaptchaStore implements CaptchaStore {
+
+    private static final byte VERSION = 1;
+    private static final int HEADER_LENGTH = 1 + 8 + 8;
+    private static final int MAC_LENGTH = 16;
+    private static final int TOKEN_LENGTH = HEADER_LENGTH + MAC_LENGTH;
+    private static final String MAC_ALGORITHM = "HmacSHA256";
+
+    private final SecretKeySpec key;
+    private final long replayWindowMillis;
+    private final RotatingReplayFilter replayFilter;
+    private final SecureRandom secureRandom = new SecureRandom();
+
+    private final ThreadLocal<Mac> macs = ThreadLocal.withInitial(this::newMac);
+
+    public SignedCaptchaStore(@Value("${captcha.signed.secret:}") String secret,
+                              @Value("${captcha.signed.replay-window-ms:300000}") long replayWindowMillis,
+                              @Value("${captcha.signed.replay-filter-bits:24}") int replayFilterBits) {
+        byte[] keyBytes;
+        if (secret == null || secret.isBlank()) {
+            // No shared secret configured: tokens are only valid on this node and until restart
+            keyBytes = new byte[32];
+            secureRandom.nextBytes(keyBytes);
+        } else {
+            keyBytes = Base64.getDecoder().decode(secret);
+        }
+        this.key = new SecretKeySpec(keyBytes, MAC_ALGORITHM);
+        this.replayWindowMillis = replayWindowMillis;
+        this.replayFilter = new RotatingReplayFilter(replayFilterBits, replayWindowMillis, System.currentTimeMillis());
+    }
+
+    @Override
+    public String issue(String code, Instant expiresAt) {
+        if (expiresAt.toEpochMilli() - System.currentTimeMillis() > replayWindowMillis) {
+            throw new IllegalArgumentException("Captcha lifetime exceeds the replay window");
+        }
+        ByteBuffer buffer = ByteBuffer.allocate(TOKEN_LENGTH);
+        buffer.put(VERSION);
+        buffer.putLong(expiresAt.getEpochSecond());
+        buffer.putLong(secureRandom.nextLong());
+        byte[] token = buffer.array();
+        System.arraycopy(sign(token, code), 0, token, HEADER_LENGTH, MAC_LENGTH);
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(token);
+    }
+
+    @Override
+    public boolean consume(String token, String code) {
+        if (token == null || code == null) {
+            return false;
+        }
+        byte[] raw;
+        try {
+            raw = Base64.getUrlDecoder().decode(token);
+        } catch (IllegalArgumentException e) {
+            return false;
+        }
+        if (raw.length != TOKEN_LENGTH || raw[0] != VERSION) {
+            return false;
+        }
+
+        ByteBuffer buffer = ByteBuffer.wrap(raw);
+        buffer.get();
+        long expiresAtMillis = buffer.getLong() * 1000L;
+        long nonce = buffer.getLong();
+        long now = System.currentTimeMillis();
+        if (expiresAtMillis <= now) {
+            return false;
+        }
+
+        byte[] expectedMac = sign(raw, code);
+        byte[] actualMac = Arrays.copyOfRange(raw, HEADER_LENGTH, TOKEN_LENGTH);
+        if (!MessageDigest.isEqual(expectedMac, actualMac)) {
+            return false;
+        }
+
+        // Only authentic tokens reach the replay filter, so forged tokens cannot fill it
+        return replayFilter.markIfAbsent(nonce, now);
+    }
+
+    /**
+     * Truncated HMAC over the token header and the captcha code.
+     */
+    private byte[] sign(byte[] token, String code) {
+        Mac mac = macs.get();
+        mac.update(token, 0, HEADER_LENGTH);
+        byte[] full = mac.doFinal(code.getBytes(StandardCharsets.UTF_8));
+        return Arrays.copyOf(full, MAC_LENGTH);
+    }
+
+    private Mac newMac() {
+        try {
+            Mac mac = Mac.getInstance(MAC_ALGORITHM);
+            mac.init(key);
+            return mac;
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("Cannot initialize captcha MAC", e);
+        }
+    }
+}
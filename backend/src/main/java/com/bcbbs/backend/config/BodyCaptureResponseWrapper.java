@@ -0,0 +1,146 @@
+package com.bcbbs.backend.config;
+
+import jakarta.servlet.ServletOutputStream;
+import jakarta.servlet.WriteListener;
+import jakarta.servlet.http.HttpServletResponse;
+import jakarta.servlet.http.HttpServletResponseWrapper;
+
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.util.Arrays;
+
+/**
+ * Response wrapper that writes straight through to the client and keeps a copy of at most the
+ * first {@code captureLimit} bytes for logging. Unlike {@code ContentCachingResponseWrapper}
+ * it never holds the whole body in heap, and nothing has to be copied out afterwards.
+ */
+public class BodyCaptureResponseWrapper extends HttpServletResponseWrapper {
+
+    private final int captureLimit;
+    private byte[] captured = new byte[0];
+    private int capturedLength;
+    private long totalLength;
+
+    private ServletOutputStream outputStream;
+    private PrintWriter writer;
+
+    public BodyCaptureResponseWrapper(HttpServletResponse response, int captureLimit) {
+        super(response);
+        this.captureLimit = captureLimit;
+    }
+
+    @Override
+    public ServletOutputStream getOutputStream() throws IOException {
+        if (writer != null) {
+            throw new IllegalStateException("getWriter() has already been called on this response");
+        }
+        if (outputStream == null) {
+            outputStream = new CapturingOutputStream(super.getOutputStream());
+        }
+        return outputStream;
+    }
+
+    @Override
+    public PrintWriter getWriter() throws IOException {
+        if (writer == null) {
+            if (outputStream != null) {
+                throw new IllegalStateException("getOutputStream() has already been called on this response");
+            }
+            outputStream = new CapturingOutputStream(super.getOutputStream());
+            writer = new PrintWriter(new OutputStreamWriter(outputStream, getCharacterEncoding()));
+        }
+        return writer;
+    }
+
+    @Override
+    public void flushBuffer() throws IOException {
+        if (writer != null) {
+            writer.flush();
+        }
+        super.flushBuffer();
+    }
+
+    /**
+     * Push out anything still buffered in the writer, so the capture is complete.
+     */
+    public void flushWriter() {
+        if (writer != null) {
+            writer.flush();
+        }
+    }
+
+    /**
+     * The captured start of the body; only the first {@link #getCapturedLength()} bytes are valid.
+     */
+    public byte[] getCapturedContent() {
+        return captured;
+    }
+
+    public int getCapturedLength() {
+        return capturedLength;
+    }
+
+    /**
+     * Bytes written to the client, captured or not.
+     */
+    public long getTotalLength() {
+        return totalLength;
+    }
+
+    private void capture(byte[] bytes, int offset, int length) {
+        totalLength += length;
+        int room = Math.min(length, captureLimit - capturedLength);
+        if (room <= 0) {
+            return;
+        }
+        if (capturedLength + room > captured.length) {
+            captured = Arrays.copyOf(captured, Math.min(captureLimit, Math.max(capturedLength + room, captured.length * 2)));
+        }
+        System.arraycopy(bytes, offset, captured, capturedLength, room);
+        capturedLength += room;
+    }
+
+    private final class CapturingOutputStream extends ServletOutputStream {
+
+        private final ServletOutputStream delegate;
+        private final byte[] single = new byte[1];
+
+        private CapturingOutputStream(ServletOutputStream delegate) {
+            this.delegate = delegate;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            delegate.write(b);
+            single[0] = (byte) b;
+            capture(single, 0, 1);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            delegate.write(b, off, len);
+            capture(b, off, len);
+        }
+
+        @Override
+        public void flush() throws IOException {
+            delegate.flush();
+        }
+
+        @Override
+        public void close() throws IOException {
+            delegate.close();
+        }
+
+        @Override
+        public boolean isReady() {
+            return delegate.isReady();
+        }
+
+        @Override
+        public void setWriteListener(WriteListener writeListener) {
+            delegate.setWriteListener(writeListener);
+        }
+    }
+}
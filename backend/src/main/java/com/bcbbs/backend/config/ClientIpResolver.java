@@ -0,0 +1,71 @@
+package com.bcbbs.backend.config;
+
+import jakarta.servlet.http.HttpServletRequest;
+
+import java.util.Collection;
+
+/**
+ * Client address of a request, taking the proxy headers set by Nginx and other reverse proxies
+ * into account.
+ */
+public final class ClientIpResolver {
+
+    private static final String[] PROXY_HEADERS = {
+            "X-Forwarded-For",
+            "Proxy-Client-IP",
+            "WL-Proxy-Client-IP",
+            "HTTP_CLIENT_IP",
+            "HTTP_X_FORWARDED_FOR"
+    };
+
+    private ClientIpResolver() {
+    }
+
+    /**
+     * Get client real IP: the first proxy header present, otherwise the remote address.
+     * For multiple proxies, the first (original client) address is taken.
+     */
+    public static String resolve(HttpServletRequest request) {
+        String ip = null;
+        for (String header : PROXY_HEADERS) {
+            ip = request.getHeader(header);
+            if (ip != null && !ip.isEmpty() && !"unknown".equalsIgnoreCase(ip)) {
+                break;
+            }
+            ip = null;
+        }
+        if (ip == null) {
+            ip = request.getRemoteAddr();
+        }
+        int comma = ip == null ? -1 : ip.indexOf(',');
+        if (comma >= 0) {
+            ip = ip.substring(0, comma).trim();
+        }
+        return ip;
+    }
+
+    /**
+     * Client IP that a client cannot choose by sending its own proxy headers: X-Forwarded-For is
+     * only followed through hops that are trusted proxies, right to left, since each proxy appends
+     * the address it received the request from. Without trusted proxies this is the remote address.
+     */
+    public static String resolveTrusted(HttpServletRequest request, Collection<String> trustedProxies) {
+        String ip = request.getRemoteAddr();
+        String forwarded = request.getHeader("X-Forwarded-For");
+        if (forwarded == null || !trustedProxies.contains(ip)) {
+            return ip;
+        }
+        String[] hops = forwarded.split(",");
+        for (int i = hops.length - 1; i >= 0; i--) {
+            String hop = hops[i].trim();
+            if (hop.isEmpty()) {
+                break;
+            }
+            ip = hop;
+            if (!trustedProxies.contains(ip)) {
+                break;
+            }
+        }
+        return ip;
+    }
+}
@@ -1,11 +1,14 @@
 package com.bcbbs.backend.config;
 
 import com.bcbbs.backend.dto.ApiResponse;
+import com.bcbbs.backend.security.PasswordHashingRejectedException;
 import jakarta.servlet.http.HttpServletRequest;
 import lombok.extern.slf4j.Slf4j;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.AccessDeniedException;
 import org.springframework.security.authentication.BadCredentialsException;
@@ -18,6 +21,7 @@ import org.springframework.web.bind.MissingServletRequestParameterException;
 import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.bind.annotation.RestControllerAdvice;
 import org.springframework.web.method.annotation.MethodArgumentTypeMismatchException;
+import org.springframework.web.server.ResponseStatusException;
 import org.springframework.web.servlet.NoHandlerFoundException;
 
 import java.io.PrintWriter;
@@ -73,7 +77,7 @@ public class GlobalExceptionHandler {
         logBuilder.append(String.format("║ Time: %s\n", timestamp));
         logBuilder.append(String.format("║ Request URI: %s\n", request.getRequestURI()));
         logBuilder.append(String.format("║ Request Method: %s\n", request.getMethod()));
-        logBuilder.append(String.format("║ Client IP: %s\n", getClientIp(request)));
+        logBuilder.append(String.format("║ Client IP: %s\n", ClientIpResolver.resolve(request)));
         logBuilder.append(String.format("║ User-Agent: %s\n", request.getHeader("User-Agent")));
         logBuilder.append(String.format("║ Request Params: %s\n", getRequestParams(request)));
         logBuilder.append("╠══════════════════════════════════════════════════════════════════════════════╣\n");
@@ -93,34 +97,7 @@ public class GlobalExceptionHandler {
     private void logWarn(String errorId, HttpServletRequest request, Exception e, String errorType) {
         log.warn("[{}] {} - URI: {}, Method: {}, IP: {}, Message: {}",
                 errorId, errorType, request.getRequestURI(), request.getMethod(),
-                getClientIp(request), e.getMessage());
-    }
-
-    /**
-     * Get client real IP
-     */
-    private String getClientIp(HttpServletRequest request) {
-        String ip = request.getHeader("X-Forwarded-For");
-        if (ip == null || ip.isEmpty() || "unknown".equalsIgnoreCase(ip)) {
-            ip = request.getHeader("Proxy-Client-IP");
-        }
-        if (ip == null || ip.isEmpty() || "unknown".equalsIgnoreCase(ip)) {
-            ip = request.getHeader("WL-Proxy-Client-IP");
-        }
-        if (ip == null || ip.isEmpty() || "unknown".equalsIgnoreCase(ip)) {
-            ip = request.getHeader("HTTP_CLIENT_IP");
-        }
-        if (ip == null || ip.isEmpty() || "unknown".equalsIgnoreCase(ip)) {
-            ip = request.getHeader("HTTP_X_FORWARDED_FOR");
-        }
-        if (ip == null || ip.isEmpty() || "unknown".equalsIgnoreCase(ip)) {
-            ip = request.getRemoteAddr();
-        }
-        // For multiple proxies, take the first IP
-        if (ip != null && ip.contains(",")) {
-            ip = ip.split(",")[0].trim();
-        }
-        return ip;
+                ClientIpResolver.resolve(request), e.getMessage());
     }
 
     /**
@@ -151,9 +128,13 @@ public class GlobalExceptionHandler {
     @ExceptionHandler(AuthenticationException.class)
     public ResponseEntity<ApiResponse<Object>> handleAuthenticationException(
             AuthenticationException e, HttpServletRequest request) {
+        // Spring Security wraps failures of the user lookup path; hashing pool saturation is not an auth failure
+        if (e.getCause() instanceof PasswordHashingRejectedException rejected) {
+            return handlePasswordHashingRejectedException(rejected, request);
+        }
         String errorId = generateErrorId();
         SECURITY_LOG.warn("[{}] Authentication failed - URI: {}, IP: {}, Message: {}",
-                errorId, request.getRequestURI(), getClientIp(request), e.getMessage());
+                errorId, request.getRequestURI(), ClientIpResolver.resolve(request), e.getMessage());
 
         return ResponseEntity.status(HttpStatus.UNAUTHORIZED)
                 .body(ApiResponse.error(401, "Authentication failed: " + e.getMessage(), errorId));
@@ -167,7 +148,7 @@ public class GlobalExceptionHandler {
             BadCredentialsException e, HttpServletRequest request) {
         String errorId = generateErrorId();
         SECURITY_LOG.warn("[{}] Bad credentials - URI: {}, IP: {}",
-                errorId, request.getRequestURI(), getClientIp(request));
+                errorId, request.getRequestURI(), ClientIpResolver.resolve(request));
 
         return ResponseEntity.status(HttpStatus.UNAUTHORIZED)
                 .body(ApiResponse.error(401, "Username or password is incorrect", errorId));
@@ -181,7 +162,7 @@ public class GlobalExceptionHandler {
             AccessDeniedException e, HttpServletRequest request) {
         String errorId = generateErrorId();
         SECURITY_LOG.warn("[{}] Access denied - URI: {}, IP: {}, Message: {}",
-                errorId, request.getRequestURI(), getClientIp(request), e.getMessage());
+                errorId, request.getRequestURI(), ClientIpResolver.resolve(request), e.getMessage());
 
         return ResponseEntity.status(HttpStatus.FORBIDDEN)
                 .body(ApiResponse.error(403, "Insufficient permissions, access denied", errorId));
@@ -293,6 +274,41 @@ public class GlobalExceptionHandler {
                 .body(ApiResponse.error(404, "Requested resource not found: " + request.getRequestURI(), errorId));
     }
 
+    /**
+     * Handle exceptions that carry their own HTTP status (ResponseStatusException)
+     */
+    @ExceptionHandler(ResponseStatusException.class)
+    public ResponseEntity<ApiResponse<Object>> handleResponseStatusException(
+            ResponseStatusException e, HttpServletRequest request) {
+        String errorId = generateErrorId();
+        logWarn(errorId, request, e, "Request rejected");
+
+        int status = e.getStatusCode().value();
+        String message = e.getReason() != null ? e.getReason() : HttpStatus.valueOf(status).getReasonPhrase();
+        // Explicit, so the error is also written for clients that only accept text/event-stream
+        return ResponseEntity.status(e.getStatusCode())
+                .headers(e.getHeaders())
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(ApiResponse.error(status, message, errorId));
+    }
+
+    // ==================== Capacity Exceptions ====================
+
+    /**
+     * Handle password hashing pool saturation (login storm)
+     */
+    @ExceptionHandler(PasswordHashingRejectedException.class)
+    public ResponseEntity<ApiResponse<Object>> handlePasswordHashingRejectedException(
+            PasswordHashingRejectedException e, HttpServletRequest request) {
+        String errorId = generateErrorId();
+        SECURITY_LOG.warn("[{}] Password hashing rejected - URI: {}, IP: {}, Message: {}",
+                errorId, request.getRequestURI(), ClientIpResolver.resolve(request), e.getMessage());
+
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, "1")
+                .body(ApiResponse.error(503, "Server is busy, please retry later", errorId));
+    }
+
     // ==================== Business Logic Exceptions ====================
 
     /**
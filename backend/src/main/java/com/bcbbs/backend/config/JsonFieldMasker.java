@@ -0,0 +1,149 @@
+package com.bcbbs.backend.config;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Hides the values of sensitive JSON fields (passwords, tokens) in logged request and response bodies.
+ * <p>
+ * One forward pass over the UTF-8 bytes, without regular expressions or building a JSON tree. It
+ * tracks just enough structure (strings, escapes, object versus array nesting) to tell keys from
+ * values, so a field is masked wherever it is nested. The value of a sensitive field becomes
+ * "*****" when it is a string, number or literal; objects and arrays are kept. Input cut off by a
+ * body-size cap, or that is not JSON at all, is passed through as well as it can be and never
+ * fails.
+ */
+public final class JsonFieldMasker {
+
+    private static final byte[][] SENSITIVE_FIELDS = {
+            bytes("password"),
+            bytes("oldPassword"),
+            bytes("newPassword"),
+            bytes("token")
+    };
+    private static final String MASK = "\"*****\"";
+
+    private JsonFieldMasker() {
+    }
+
+    /**
+     * Mask the first {@code length} bytes of a UTF-8 body.
+     */
+    public static String mask(byte[] content, int length) {
+        StringBuilder out = new StringBuilder(length + 16);
+        // Whether each nesting level is an object (bit set) or an array; deeper levels count as arrays
+        long objectLevels = 0;
+        int depth = 0;
+        boolean expectKey = false;
+        boolean maskValue = false;
+        // Start of the pending run of bytes not yet copied to the output
+        int copied = 0;
+        int i = 0;
+        while (i < length) {
+            byte b = content[i];
+            if (b == '"') {
+                int end = stringEnd(content, i, length);
+                if (expectKey) {
+                    maskValue = isSensitive(content, i + 1, end - 1);
+                    expectKey = false;
+                } else if (maskValue) {
+                    copied = replace(out, content, copied, i, end);
+                    maskValue = false;
+                }
+                i = end;
+                continue;
+            }
+            switch (b) {
+                case '{' -> {
+                    if (depth < 64) {
+                        objectLevels |= 1L << depth;
+                    }
+                    depth++;
+                    expectKey = true;
+                    maskValue = false;
+                }
+                case '[' -> {
+                    if (depth < 64) {
+                        objectLevels &= ~(1L << depth);
+                    }
+                    depth++;
+                    maskValue = false;
+                }
+                case '}', ']' -> {
+                    depth = Math.max(0, depth - 1);
+                    maskValue = false;
+                }
+                case ',' -> expectKey = depth > 0 && depth <= 64 && (objectLevels & (1L << (depth - 1))) != 0;
+                default -> {
+                    if (maskValue && b != ':' && b != ' ' && b != '\t' && b != '\r' && b != '\n') {
+                        // Number or literal
+                        int end = i;
+                        while (end < length && !isDelimiter(content[end])) {
+                            end++;
+                        }
+                        copied = replace(out, content, copied, i, end);
+                        maskValue = false;
+                        i = end;
+                        continue;
+                    }
+                }
+            }
+            i++;
+        }
+        append(out, content, copied, length);
+        return out.toString();
+    }
+
+    /**
+     * Index just past the closing quote of the string starting at {@code start}, or {@code length}
+     * if the string is cut off.
+     */
+    private static int stringEnd(byte[] content, int start, int length) {
+        int i = start + 1;
+        while (i < length) {
+            byte b = content[i];
+            if (b == '\\') {
+                i += 2;
+            } else if (b == '"') {
+                return i + 1;
+            } else {
+                i++;
+            }
+        }
+        return length;
+    }
+
+    private static boolean isSensitive(byte[] content, int from, int to) {
+        for (byte[] field : SENSITIVE_FIELDS) {
+            if (to - from == field.length && Arrays.equals(content, from, to, field, 0, field.length)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static boolean isDelimiter(byte b) {
+        return b == ',' || b == '}' || b == ']' || b == ' ' || b == '\t' || b == '\r' || b == '\n';
+    }
+
+    /**
+     * Copy the pending bytes before {@code from}, write the mask in place of {@code from..to}.
+     *
+     * @return the new start of the pending run
+     */
+    private static int replace(StringBuilder out, byte[] content, int copied, int from, int to) {
+        append(out, content, copied, from);
+        out.append(MASK);
+        return to;
+    }
+
+    private static void append(StringBuilder out, byte[] content, int from, int to) {
+        if (to > from) {
+            out.append(new String(content, from, to - from, StandardCharsets.UTF_8));
+        }
+    }
+
+    private static byte[] bytes(String field) {
+        return field.getBytes(StandardCharsets.US_ASCII);
+    }
+}
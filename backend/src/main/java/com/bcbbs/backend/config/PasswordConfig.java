@@ -1,19 +1,62 @@
 package com.bcbbs.backend.config;
 
+import com.bcbbs.backend.security.BoundedPasswordEncoder;
+import com.bcbbs.backend.security.CostAwareBCryptPasswordEncoder;
+import com.bcbbs.backend.security.PasswordHashCalibrator;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
-import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
-import org.springframework.security.crypto.password.PasswordEncoder;
 
 @Configuration
 public class PasswordConfig {
 
+    // Fixed BCrypt strength; 0 means calibrate at startup against the latency target, which can
+    // differ between nodes and restarts, so production pins it
+    @Value("${password.bcrypt.strength:0}")
+    private int bcryptStrength;
+
+    // Desired time for a single hash when calibrating
+    @Value("${password.bcrypt.target-ms:250}")
+    private long bcryptTargetMs;
+
+    // Calibration never goes below or above these strengths
+    @Value("${password.bcrypt.min-strength:10}")
+    private int bcryptMinStrength;
+
+    @Value("${password.bcrypt.max-strength:14}")
+    private int bcryptMaxStrength;
+
+    // Hashing threads; 0 means one per available core
+    @Value("${password.hashing.threads:0}")
+    private int hashingThreads;
+
+    // Tasks allowed to wait for a hashing thread before new work is rejected with 503
+    @Value("${password.hashing.queue-capacity:64}")
+    private int hashingQueueCapacity;
+
+    // Maximum time a request thread waits for its hashing result
+    @Value("${password.hashing.timeout-ms:5000}")
+    private long hashingTimeoutMs;
+
     /**
      * Shared password encoder bean for authentication and user services.
+     * BCrypt work runs on a bounded hashing pool so it cannot starve request threads, and the
+     * work factor is calibrated to the current hardware unless fixed in configuration.
+     * Hashes stored with a lower cost are reported by upgradeEncoding and rehashed on login.
      */
     @Bean
-    public PasswordEncoder passwordEncoder() {
-        return new BCryptPasswordEncoder();
+    public BoundedPasswordEncoder passwordEncoder(MeterRegistry meterRegistry) {
+        int threads = hashingThreads > 0 ? hashingThreads : Runtime.getRuntime().availableProcessors();
+        int strength = bcryptStrength > 0
+                ? bcryptStrength
+                : PasswordHashCalibrator.calibrate(bcryptTargetMs, bcryptMinStrength, bcryptMaxStrength);
+        return new BoundedPasswordEncoder(
+                new CostAwareBCryptPasswordEncoder(strength),
+                threads,
+                hashingQueueCapacity,
+                hashingTimeoutMs,
+                meterRegistry
+        );
     }
 }
-
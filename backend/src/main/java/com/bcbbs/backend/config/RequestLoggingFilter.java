@@ -6,21 +6,30 @@ import jakarta.servlet.http.HttpServletResponse;
 import lombok.extern.slf4j.Slf4j;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.core.Ordered;
 import org.springframework.core.annotation.Order;
 import org.springframework.stereotype.Component;
 import org.springframework.web.util.ContentCachingRequestWrapper;
-import org.springframework.web.util.ContentCachingResponseWrapper;
 
 import java.io.IOException;
-import java.nio.charset.StandardCharsets;
-import java.util.Collections;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Enumeration;
+import java.util.List;
 import java.util.UUID;
-import java.util.stream.Collectors;
+import java.util.concurrent.ThreadLocalRandom;
 
 /**
  * API request logging filter
- * Logs detailed information for all HTTP requests and responses
+ * Logs detailed information for HTTP requests and responses.
+ * <p>
+ * In "full" mode every request is logged. In "sampled" mode a random "request-log.sample-rate"
+ * share of requests is logged, plus every request that ends in an error status or exception.
+ * Bodies are captured only up to the size cap of the route ("request-log.body-limits", else
+ * "request-log.max-body-bytes") and sensitive JSON fields are masked by {@link JsonFieldMasker}.
+ * Responses are always written straight through to the client while the capped copy is taken,
+ * never buffered whole.
  */
 @Slf4j
 @Component
@@ -43,9 +52,56 @@ public class RequestLoggingFilter implements Filter {
             "/favicon.ico",
             "/assets/",
             "/static/",
-            "/actuator/"
+            "/actuator/",
+            // Captcha images are streamed from pooled buffers; caching them for logging would copy every image
+            "/api/public/captcha",
+            // Long-lived event stream; the response must not be buffered
+            "/api/public/lines/stream"
     };
 
+    // Bodies of successful sampled requests are shortened further in the log line
+    private static final int SUCCESS_BODY_CHARS = 500;
+
+    private final boolean sampled;
+    private final double sampleRate;
+    private final int maxBodyBytes;
+    // Route prefixes with their own body cap, longest first
+    private final String[] limitedRoutes;
+    private final int[] routeBodyLimits;
+
+    public RequestLoggingFilter(@Value("${request-log.mode:full}") String mode,
+                                @Value("${request-log.sample-rate:1.0}") double sampleRate,
+                                @Value("${request-log.max-body-bytes:4096}") int maxBodyBytes,
+                                @Value("${request-log.body-limits:}") String bodyLimits) {
+        this.sampled = switch (mode.toLowerCase()) {
+            case "full" -> false;
+            case "sampled" -> true;
+            default -> throw new IllegalArgumentException("Unknown request-log.mode: " + mode);
+        };
+        this.sampleRate = sampleRate;
+        this.maxBodyBytes = maxBodyBytes;
+
+        // "prefix=bytes,prefix=bytes"
+        List<String[]> limits = new ArrayList<>();
+        for (String entry : bodyLimits.split(",")) {
+            if (entry.isBlank()) {
+                continue;
+            }
+            String[] parts = entry.split("=", 2);
+            if (parts.length != 2) {
+                throw new IllegalArgumentException("Invalid request-log.body-limits entry: " + entry);
+            }
+            limits.add(new String[]{parts[0].strip(), parts[1].strip()});
+        }
+        limits.sort(Comparator.comparingInt((String[] limit) -> limit[0].length()).reversed());
+        this.limitedRoutes = new String[limits.size()];
+        this.routeBodyLimits = new int[limits.size()];
+        for (int i = 0; i < limits.size(); i++) {
+            limitedRoutes[i] = limits.get(i)[0];
+            routeBodyLimits[i] = Integer.parseInt(limits.get(i)[1]);
+        }
+    }
+
     @Override
     public void doFilter(ServletRequest request, ServletResponse response, FilterChain chain)
             throws IOException, ServletException {
@@ -60,31 +116,42 @@ public class RequestLoggingFilter implements Filter {
             return;
         }
 
-        // Generate request ID
-        String requestId = UUID.randomUUID().toString().substring(0, 8).toUpperCase();
+        boolean logAlways = !sampled || ThreadLocalRandom.current().nextDouble() < sampleRate;
+        int bodyLimit = bodyLimit(requestURI);
 
-        // Wrap request and response to read content
-        ContentCachingRequestWrapper wrappedRequest = new ContentCachingRequestWrapper(httpRequest);
-        @SuppressWarnings("null")
-        ContentCachingResponseWrapper wrappedResponse = new ContentCachingResponseWrapper(httpResponse);
+        // Capture at most bodyLimit bytes of each body; the response still streams to the client
+        HttpServletRequest wrappedRequest = bodyLimit > 0
+                ? new ContentCachingRequestWrapper(httpRequest, bodyLimit)
+                : httpRequest;
+        BodyCaptureResponseWrapper wrappedResponse = new BodyCaptureResponseWrapper(httpResponse, bodyLimit);
 
+        // Unsampled requests get an ID only if they end up being logged
+        String requestId = logAlways ? newRequestId() : null;
         long startTime = System.currentTimeMillis();
+        boolean failed = true;
 
         try {
-            // Log request start
-            logRequestStart(requestId, wrappedRequest);
+            if (logAlways) {
+                // Log request start
+                logRequestStart(requestId, wrappedRequest);
+            }
 
             // Execute request
             chain.doFilter(wrappedRequest, wrappedResponse);
+            failed = false;
 
         } finally {
             long duration = System.currentTimeMillis() - startTime;
+            wrappedResponse.flushWriter();
 
             // Log request end
-            logRequestEnd(requestId, wrappedRequest, wrappedResponse, duration);
-
-            // Copy response content to original response
-            wrappedResponse.copyBodyToResponse();
+            if (logAlways) {
+                logRequestEnd(requestId, wrappedRequest, wrappedResponse, duration, false);
+            } else if (failed || wrappedResponse.getStatus() >= 400) {
+                logRequestEnd(newRequestId(), wrappedRequest, wrappedResponse, duration, true);
+            } else if (duration > 3000) {
+                logSlowRequest(newRequestId(), wrappedRequest, duration);
+            }
         }
     }
 
@@ -100,21 +167,45 @@ public class RequestLoggingFilter implements Filter {
         return false;
     }
 
+    /**
+     * Body capture cap of the route: the longest configured prefix, else the default
+     */
+    private int bodyLimit(String uri) {
+        for (int i = 0; i < limitedRoutes.length; i++) {
+            if (uri.startsWith(limitedRoutes[i])) {
+                return routeBodyLimits[i];
+            }
+        }
+        return maxBodyBytes;
+    }
+
+    private String newRequestId() {
+        return UUID.randomUUID().toString().substring(0, 8).toUpperCase();
+    }
+
     /**
      * Log request start
      */
-    private void logRequestStart(String requestId, ContentCachingRequestWrapper request) {
-        String clientIp = getClientIp(request);
+    private void logRequestStart(String requestId, HttpServletRequest request) {
+        String clientIp = ClientIpResolver.resolve(request);
         String method = request.getMethod();
         String uri = request.getRequestURI();
         String queryString = request.getQueryString();
         String fullUrl = queryString != null ? uri + "?" + queryString : uri;
 
         // Get request headers (hide sensitive information)
-        String headers = Collections.list(request.getHeaderNames()).stream()
-                .filter(name -> !name.equalsIgnoreCase("authorization") && !name.equalsIgnoreCase("cookie"))
-                .map(name -> name + "=" + request.getHeader(name))
-                .collect(Collectors.joining(", "));
+        StringBuilder headers = new StringBuilder();
+        Enumeration<String> names = request.getHeaderNames();
+        while (names.hasMoreElements()) {
+            String name = names.nextElement();
+            if (name.equalsIgnoreCase("authorization") || name.equalsIgnoreCase("cookie")) {
+                continue;
+            }
+            if (!headers.isEmpty()) {
+                headers.append(", ");
+            }
+            headers.append(name).append('=').append(request.getHeader(name));
+        }
 
         API_LOG.info("[{}] >>> {} {} | IP: {} | Headers: [{}]",
                 requestId, method, fullUrl, clientIp, headers);
@@ -122,9 +213,11 @@ public class RequestLoggingFilter implements Filter {
 
     /**
      * Log request end
+     *
+     * @param standalone whether no start line was logged, so this line must identify the request itself
      */
-    private void logRequestEnd(String requestId, ContentCachingRequestWrapper request,
-                               ContentCachingResponseWrapper response, long duration) {
+    private void logRequestEnd(String requestId, HttpServletRequest request,
+                               BodyCaptureResponseWrapper response, long duration, boolean standalone) {
         int status = response.getStatus();
         String statusDesc = getStatusDescription(status);
 
@@ -134,8 +227,19 @@ public class RequestLoggingFilter implements Filter {
         // Get response body (if JSON type)
         String responseBody = getResponseBody(response);
 
-        // Determine log level based on status code
-        if (status >= 500) {
+        if (standalone) {
+            // Unsampled request that failed: one line with everything needed to find it
+            String message = "[{}] <<< {} {} | {} {} | IP: {} | Duration: {}ms | Request: {} | Response: {}";
+            Object[] args = {requestId, status, statusDesc, request.getMethod(), request.getRequestURI(),
+                    ClientIpResolver.resolve(request), duration, requestBody, responseBody};
+            if (status >= 500 || status < 400) {
+                // A status below 400 here means the chain threw before the error response was written
+                API_LOG.error(message, args);
+            } else {
+                API_LOG.warn(message, args);
+            }
+        } else if (status >= 500) {
+            // Determine log level based on status code
             API_LOG.error("[{}] <<< {} {} | Duration: {}ms | Request: {} | Response: {}",
                     requestId, status, statusDesc, duration, requestBody, responseBody);
         } else if (status >= 400) {
@@ -144,56 +248,57 @@ public class RequestLoggingFilter implements Filter {
         } else {
             API_LOG.info("[{}] <<< {} {} | Duration: {}ms | Request: {} | Response: {}",
                     requestId, status, statusDesc, duration,
-                    truncate(requestBody, 500), truncate(responseBody, 500));
+                    truncate(requestBody, SUCCESS_BODY_CHARS), truncate(responseBody, SUCCESS_BODY_CHARS));
         }
 
         // Log slow requests
         if (duration > 3000) {
-            log.warn("[SLOW_REQUEST] [{}] Request took {}ms - {} {}",
-                    requestId, duration, request.getMethod(), request.getRequestURI());
+            logSlowRequest(requestId, request, duration);
         }
     }
 
+    private void logSlowRequest(String requestId, HttpServletRequest request, long duration) {
+        log.warn("[SLOW_REQUEST] [{}] Request took {}ms - {} {}",
+                requestId, duration, request.getMethod(), request.getRequestURI());
+    }
+
     /**
-     * Get request body
+     * Get request body, masked and capped
      */
-    private String getRequestBody(ContentCachingRequestWrapper request) {
+    private String getRequestBody(HttpServletRequest request) {
         if (!isLoggableContentType(request.getContentType())) {
             return "[Non-JSON content]";
         }
+        if (!(request instanceof ContentCachingRequestWrapper cachingRequest)) {
+            return "[Not captured]";
+        }
 
-        byte[] content = request.getContentAsByteArray();
+        byte[] content = cachingRequest.getContentAsByteArray();
         if (content.length == 0) {
             return "[Empty]";
         }
-
-        String body = new String(content, StandardCharsets.UTF_8);
-        // Hide password fields
-        body = body.replaceAll("\"password\"\\s*:\\s*\"[^\"]*\"", "\"password\":\"*****\"");
-        body = body.replaceAll("\"oldPassword\"\\s*:\\s*\"[^\"]*\"", "\"oldPassword\":\"*****\"");
-        body = body.replaceAll("\"newPassword\"\\s*:\\s*\"[^\"]*\"", "\"newPassword\":\"*****\"");
-
-        return body;
+        return maskedBody(content, content.length, request.getContentLengthLong());
     }
 
     /**
-     * Get response body
+     * Get response body, masked and capped
      */
-    private String getResponseBody(ContentCachingResponseWrapper response) {
+    private String getResponseBody(BodyCaptureResponseWrapper response) {
         if (!isLoggableContentType(response.getContentType())) {
             return "[Non-JSON content]";
         }
-
-        byte[] content = response.getContentAsByteArray();
-        if (content.length == 0) {
+        if (response.getTotalLength() == 0) {
             return "[Empty]";
         }
+        if (response.getCapturedLength() == 0) {
+            return "[Not captured]";
+        }
+        return maskedBody(response.getCapturedContent(), response.getCapturedLength(), response.getTotalLength());
+    }
 
-        String body = new String(content, StandardCharsets.UTF_8);
-        // Hide token field
-        body = body.replaceAll("\"token\"\\s*:\\s*\"[^\"]*\"", "\"token\":\"*****\"");
-
-        return body;
+    private String maskedBody(byte[] content, int capturedLength, long totalLength) {
+        String body = JsonFieldMasker.mask(content, capturedLength);
+        return totalLength > capturedLength ? body + "...[Truncated]" : body;
     }
 
     /**
@@ -221,26 +326,6 @@ public class RequestLoggingFilter implements Filter {
         return content.substring(0, maxLength) + "...[Truncated]";
     }
 
-    /**
-     * Get client IP
-     */
-    private String getClientIp(HttpServletRequest request) {
-        String ip = request.getHeader("X-Forwarded-For");
-        if (ip == null || ip.isEmpty() || "unknown".equalsIgnoreCase(ip)) {
-            ip = request.getHeader("Proxy-Client-IP");
-        }
-        if (ip == null || ip.isEmpty() || "unknown".equalsIgnoreCase(ip)) {
-            ip = request.getHeader("WL-Proxy-Client-IP");
-        }
-        if (ip == null || ip.isEmpty() || "unknown".equalsIgnoreCase(ip)) {
-            ip = request.getRemoteAddr();
-        }
-        if (ip != null && ip.contains(",")) {
-            ip = ip.split(",")[0].trim();
-        }
-        return ip;
-    }
-
     /**
      * Get HTTP status code description
      */
@@ -1,10 +1,15 @@
 package com.bcbbs.backend.controller;
 
+import com.bcbbs.backend.config.ClientIpResolver;
 import com.bcbbs.backend.dto.*;
 import com.bcbbs.backend.entity.User;
 import com.bcbbs.backend.security.JwtService;
+import com.bcbbs.backend.security.PasswordHashingRejectedException;
 import com.bcbbs.backend.service.CaptchaService;
+import com.bcbbs.backend.service.LoginResult;
+import com.bcbbs.backend.service.LoginService;
 import com.bcbbs.backend.service.UserService;
+import jakarta.servlet.http.HttpServletRequest;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 import org.springframework.http.ResponseEntity;
@@ -17,6 +22,7 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.util.Objects;
+import java.util.UUID;
 
 @RestController
 @RequestMapping("/api/auth")
@@ -25,11 +31,15 @@ public class AuthController {
 
     private static final Logger logger = LoggerFactory.getLogger(AuthController.class);
 
+    // Same audit log as GlobalExceptionHandler's authentication failures
+    private static final Logger SECURITY_LOG = LoggerFactory.getLogger("SECURITY");
+
     private final AuthenticationManager authenticationManager;
     private final UserService userService;
     private final JwtService jwtService;
     private final PasswordEncoder passwordEncoder;
     private final CaptchaService captchaService;
+    private final LoginService loginService;
 
     @PostMapping("/login")
     public ResponseEntity<ApiResponse<AuthResponse>> login(@Valid @RequestBody AuthRequest request) {
@@ -42,6 +52,7 @@ public class AuthController {
 
         User user = (User) authentication.getPrincipal();
         logger.info("Authentication successful - User: {}, Role: {}", user.getUsername(), user.getRole());
+        userService.upgradePasswordHashIfNeeded(user, request.getPassword());
 
         String token = jwtService.generateToken(user);
 
@@ -65,7 +76,8 @@ public class AuthController {
      * - Third login and beyond: Continue prompting and require password change (no longer permanently disabled to avoid "cannot login and cannot change password" deadlock)
      */
     @PostMapping("/role-login")
-    public ResponseEntity<ApiResponse<AuthResponse>> roleLogin(@Valid @RequestBody RoleLoginRequest request) {
+    public ResponseEntity<ApiResponse<AuthResponse>> roleLogin(@Valid @RequestBody RoleLoginRequest request,
+                                                               HttpServletRequest httpRequest) {
         logger.info("========== Role login request started ==========");
         logger.info("Request parameters - Username: {}, Role: {}, Captcha Token: {}",
             request.getUsername(), request.getRole(), request.getCaptchaToken());
@@ -79,108 +91,51 @@ public class AuthController {
                     .body(ApiResponse.error(400, "Invalid captcha"));
         }
 
-        // First probe user status: if account is disabled by "initial password not changed" mechanism, guide to forced password change endpoint
-        // Don't use AuthenticationManager here (because disabled will be directly blocked by Spring Security)
-        try {
-            User probe = userService.findByUsername(request.getUsername());
-            logger.info("User probe - Username: {}, Enabled: {}, Role: {}, Password changed: {}, Login count: {}",
-                probe.getUsername(), probe.getEnabled(), probe.getRole(),
-                probe.getPasswordChanged(), probe.getLoginCountWithoutChange());
-
-            if (Boolean.FALSE.equals(probe.getEnabled())
-                    && (probe.getRole() == User.Role.MEMBER || probe.getRole() == User.Role.AGENT)
-                    && Boolean.FALSE.equals(probe.getPasswordChanged())) {
-                logger.warn("Account disabled - User: {}, Reason: Consecutive logins without changing initial password", probe.getUsername());
-                return ResponseEntity.status(403)
-                        .body(ApiResponse.error(403, "Account disabled: Logged in 3 times consecutively without changing initial password, please go to [Force Change Password] to unlock"));
+        // Single lookup, in-memory checks and one conditional counter UPDATE; expected failures are returned, not thrown
+        LoginResult result = loginService.roleLogin(request.getUsername(), request.getPassword(), request.getRole());
+        logger.info("Login result - Username: {}, Status: {}", request.getUsername(), result.status());
+
+        switch (result.status()) {
+            case INVALID_ROLE:
+                logger.error("Invalid role parameter: {}", request.getRole());
+                return ResponseEntity.badRequest()
+                        .body(ApiResponse.error(400, "Invalid role"));
+            case BAD_CREDENTIALS: {
+                String errorId = generateErrorId();
+                SECURITY_LOG.warn("[{}] Bad credentials - URI: {}, IP: {}",
+                        errorId, httpRequest.getRequestURI(), ClientIpResolver.resolve(httpRequest));
+                return ResponseEntity.status(401)
+                        .body(ApiResponse.error(401, "Username or password is incorrect", errorId));
             }
-        } catch (Exception e) {
-            logger.warn("User probe failed - Username: {}, Error: {}", request.getUsername(), e.getMessage());
-            // Cases like user not found will be handled by subsequent authenticationManager (return unified error)
-        }
-
-        logger.info("Starting Spring Security authentication - Username: {}", request.getUsername());
-        Authentication authentication;
-        try {
-            authentication = authenticationManager.authenticate(
-                    new UsernamePasswordAuthenticationToken(request.getUsername(), request.getPassword())
-            );
-            logger.info("Spring Security authentication successful - Username: {}", request.getUsername());
-        } catch (Exception e) {
-            logger.error("Spring Security authentication failed - Username: {}, Error: {}", request.getUsername(), e.getMessage());
-            throw e;
-        }
-
-        User user = (User) authentication.getPrincipal();
-        logger.info("Authenticated user info - ID: {}, Username: {}, Role: {}, Email: {}",
-            user.getId(), user.getUsername(), user.getRole(), user.getEmail());
-
-        User.Role requiredRole;
-        try {
-            requiredRole = User.Role.valueOf(request.getRole().toUpperCase());
-            logger.info("Requested role: {}, User actual role: {}", requiredRole, user.getRole());
-        } catch (IllegalArgumentException ex) {
-            logger.error("Invalid role parameter: {}", request.getRole());
-            return ResponseEntity.badRequest()
-                    .body(ApiResponse.error(400, "Invalid role"));
-        }
-
-        if (user.getRole() != requiredRole) {
-            logger.warn("Role mismatch - Requested role: {}, Actual role: {}", requiredRole, user.getRole());
-            return ResponseEntity.status(403)
-                    .body(ApiResponse.error(403, "Role mismatch"));
-        }
-
-        logger.info("Role verification passed - Role: {}", requiredRole);
-
-        // Check password change status (for MEMBER and AGENT roles)
-        logger.info("========== Starting password change status check ==========");
-        Boolean needPasswordChange = false;
-
-        if (user.getRole() == User.Role.MEMBER || user.getRole() == User.Role.AGENT) {
-            Boolean passwordChanged = user.getPasswordChanged();
-            Integer loginCount = user.getLoginCountWithoutChange();
-
-            logger.info("[IMPORTANT] User {} login - Database original values:", user.getUsername());
-            logger.info("  - passwordChanged = {}", passwordChanged);
-            logger.info("  - loginCount = {}", loginCount);
-            logger.info("  - User role = {}", user.getRole());
-
-            // Handle null values
-            if (passwordChanged == null) {
-                logger.info("  - passwordChanged is NULL, setting to false");
-                passwordChanged = false;
+            case ACCOUNT_DISABLED: {
+                String errorId = generateErrorId();
+                SECURITY_LOG.warn("[{}] Authentication failed - URI: {}, IP: {}, Message: {}",
+                        errorId, httpRequest.getRequestURI(), ClientIpResolver.resolve(httpRequest), "User is disabled");
+                return ResponseEntity.status(401)
+                        .body(ApiResponse.error(401, "Authentication failed: User is disabled", errorId));
             }
-            if (loginCount == null) {
-                logger.info("  - loginCount is NULL, setting to 0");
-                loginCount = 0;
+            case PASSWORD_CHANGE_LOCKED: {
+                logger.warn("Account disabled - User: {}, Reason: Consecutive logins without changing initial password", request.getUsername());
+                String errorId = generateErrorId();
+                SECURITY_LOG.warn("[{}] Login locked until password change - URI: {}, IP: {}, User: {}",
+                        errorId, httpRequest.getRequestURI(), ClientIpResolver.resolve(httpRequest), request.getUsername());
+                return ResponseEntity.status(403)
+                        .body(ApiResponse.error(403, "Account disabled: Logged in 3 times consecutively without changing initial password, please go to [Force Change Password] to unlock", errorId));
             }
-
-            logger.info("[DECISION] passwordChanged = {}, Does password need to be changed?", passwordChanged);
-
-            // If password not changed
-            if (!passwordChanged) {
-                // Set need password change flag
-                needPasswordChange = true;
-                logger.info("✅ [KEY] User has not changed password, setting needPasswordChange = true");
-
-                // Increment login count without password change (increment first then check)
-                loginCount = loginCount + 1;
-                user.setLoginCountWithoutChange(loginCount);
-
-                logger.info("[UPDATE] Login count increased from {} to {}", (loginCount - 1), loginCount);
-
-                // No longer disable account to avoid deadlock. Only record count and let frontend force redirect to password change page.
-                userService.save(user);
-                logger.info("[SAVE] User data has been updated to database");
-            } else {
-                needPasswordChange = false;
-                logger.info("✅ User {} has already changed password (passwordChanged=true), no forced change needed", user.getUsername());
+            case ROLE_MISMATCH: {
+                String errorId = generateErrorId();
+                SECURITY_LOG.warn("[{}] Role mismatch - URI: {}, IP: {}, User: {}, Requested role: {}",
+                        errorId, httpRequest.getRequestURI(), ClientIpResolver.resolve(httpRequest),
+                        request.getUsername(), request.getRole());
+                return ResponseEntity.status(403)
+                        .body(ApiResponse.error(403, "Role mismatch", errorId));
             }
-        } else {
-            logger.info("User role {} is not MEMBER or AGENT, skipping password check", user.getRole());
+            default:
+                break;
         }
 
+        User user = result.user();
+        Boolean needPasswordChange = result.needPasswordChange();
         logger.info("========== Password check completed, needPasswordChange = {} ==========", needPasswordChange);
 
         logger.info("========== Generating response data ==========");
@@ -264,11 +219,8 @@ public class AuthController {
 
         // Update password + unlock + mark as password changed
         logger.info("Old password validation passed, updating new password...");
-        user.setPassword(passwordEncoder.encode(request.getNewPassword()));
-        user.setPasswordChanged(true);
-        user.setLoginCountWithoutChange(0);
-        user.setEnabled(true);
-        userService.save(user);
+        // Also bumps the token version, revoking tokens issued with the old password
+        user = userService.resetPassword(user, request.getNewPassword());
         logger.info("Password update successful - User: {}, passwordChanged=true, loginCount=0, enabled=true",
             user.getUsername());
 
@@ -339,15 +291,27 @@ public class AuthController {
     }
     
     @PostMapping("/change-password")
-    public ResponseEntity<ApiResponse<String>> changePassword(
+    public ResponseEntity<ApiResponse<AuthResponse>> changePassword(
             @Valid @RequestBody ChangePasswordRequest request,
             Authentication authentication) {
         try {
             User user = (User) authentication.getPrincipal();
             logger.info("Change password request - User: {}", user.getUsername());
-            userService.changePassword(user, request.getOldPassword(), request.getNewPassword());
+            User updated = userService.changePassword(user, request.getOldPassword(), request.getNewPassword());
             logger.info("Password changed successfully - User: {}", user.getUsername());
-            return ResponseEntity.ok(ApiResponse.success("Password changed successfully", null));
+            // The old token is revoked by the password change, so hand back a fresh one; in a named
+            // field like login, so the request log masks it
+            AuthResponse authResponse = AuthResponse.builder()
+                    .token(jwtService.generateToken(updated))
+                    .username(updated.getUsername())
+                    .email(updated.getEmail())
+                    .nickname(updated.getNickname())
+                    .role(updated.getRole().name())
+                    .build();
+            return ResponseEntity.ok(ApiResponse.success("Password changed successfully", authResponse));
+        } catch (PasswordHashingRejectedException e) {
+            // Let the global handler answer 503 instead of a generic failure
+            throw e;
         } catch (IllegalArgumentException e) {
             logger.warn("Password change failed - Invalid parameter: {}", e.getMessage());
             return ResponseEntity.badRequest()
@@ -358,5 +322,8 @@ public class AuthController {
                     .body(ApiResponse.error(500, "Password change failed: " + e.getMessage()));
         }
     }
-}
 
+    private String generateErrorId() {
+        return UUID.randomUUID().toString().substring(0, 8).toUpperCase();
+    }
+}
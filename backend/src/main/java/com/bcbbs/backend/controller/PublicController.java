@@ -1,20 +1,45 @@
 package com.bcbbs.backend.controller;
 
+import com.bcbbs.backend.captcha.CaptchaImage;
+import com.bcbbs.backend.captcha.IssuedCaptchaImage;
+import com.bcbbs.backend.config.ClientIpResolver;
 import com.bcbbs.backend.dto.ApiResponse;
+import com.bcbbs.backend.dto.BestLineResponse;
 import com.bcbbs.backend.dto.CaptchaResponse;
-import com.bcbbs.backend.dto.LineResponse;
-import com.bcbbs.backend.dto.SearchItemResponse;
+import com.bcbbs.backend.dto.LatencyReportRequest;
+import com.bcbbs.backend.dto.LatencySampleRequest;
+import com.bcbbs.backend.dto.SearchPageResponse;
 import com.bcbbs.backend.entity.AccessLine;
+import com.bcbbs.backend.lines.LatencyReportThrottle;
+import com.bcbbs.backend.lines.LinePreferenceTable;
+import com.bcbbs.backend.lines.LineSnapshot;
+import com.bcbbs.backend.lines.LineStreamBroadcaster;
+import com.bcbbs.backend.search.SearchCursor;
+import com.bcbbs.backend.search.SuggestIndex;
 import com.bcbbs.backend.service.AccessLineService;
 import com.bcbbs.backend.service.CaptchaService;
 import com.bcbbs.backend.service.SearchService;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.time.LocalDateTime;
+import java.time.ZoneId;
 import java.util.List;
 
 @RestController
@@ -22,31 +47,63 @@ import java.util.List;
 @RequiredArgsConstructor
 public class PublicController {
 
+    public static final String CAPTCHA_TOKEN_HEADER = "X-Captcha-Token";
+    public static final String CAPTCHA_EXPIRES_HEADER = "X-Captcha-Expires-At";
+
     private final AccessLineService accessLineService;
+    private final LineStreamBroadcaster lineStreamBroadcaster;
+    private final LinePreferenceTable linePreferenceTable;
+    private final LatencyReportThrottle latencyReportThrottle;
     private final SearchService searchService;
+    private final SuggestIndex suggestIndex;
     private final CaptchaService captchaService;
 
     /**
-     * Search items by keyword.
+     * Search items by keyword, one page at a time.
+     * Pass the returned nextCursor as "cursor" to fetch the following page.
      */
     @GetMapping("/search")
-    public ResponseEntity<ApiResponse<List<SearchItemResponse>>> search(
-            @RequestParam("q") String keyword
+    public ResponseEntity<ApiResponse<SearchPageResponse>> search(
+            @RequestParam("q") String keyword,
+            @RequestParam(value = "limit", required = false) Integer limit,
+            @RequestParam(value = "cursor", required = false) String cursor
     ) {
         if (keyword == null || keyword.trim().isEmpty()) {
             return ResponseEntity.badRequest()
                     .body(ApiResponse.error(400, "Search keyword is required"));
         }
-        List<SearchItemResponse> results = searchService.search(keyword.trim());
-        return ResponseEntity.ok(ApiResponse.success(results));
+        SearchCursor after;
+        try {
+            after = SearchCursor.decode(cursor);
+        } catch (IllegalArgumentException ex) {
+            return ResponseEntity.badRequest()
+                    .body(ApiResponse.error(400, "Invalid search cursor"));
+        }
+        return ResponseEntity.ok(ApiResponse.success(searchService.search(keyword.trim(), limit, after)));
+    }
+
+    /**
+     * Title completions for a search prefix, best first. Served from memory; meant for per-keystroke use.
+     */
+    @GetMapping("/search/suggest")
+    public ResponseEntity<ApiResponse<List<String>>> suggest(
+            @RequestParam("q") String prefix,
+            @RequestParam(value = "limit", defaultValue = "8") int limit
+    ) {
+        return ResponseEntity.ok(ApiResponse.success(suggestIndex.suggest(prefix, Math.max(1, limit))));
     }
 
     /**
      * Load active member or agent lines.
+     * The JSON is served from a pre-serialized snapshot with an ETag; clients revalidate with
+     * If-None-Match and get 304 while the lines are unchanged. Lines preferred for the client's
+     * network (see {@link LinePreferenceTable}) come first.
      */
     @GetMapping("/lines")
-    public ResponseEntity<ApiResponse<List<LineResponse>>> getLines(
-            @RequestParam("type") String type
+    public ResponseEntity<?> getLines(
+            @RequestParam("type") String type,
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch,
+            HttpServletRequest request
     ) {
         AccessLine.LineType lineType;
         try {
@@ -55,15 +112,117 @@ public class PublicController {
             return ResponseEntity.badRequest()
                     .body(ApiResponse.error(400, "Invalid line type"));
         }
-        return ResponseEntity.ok(ApiResponse.success(accessLineService.getActiveLines(lineType)));
+        List<Long> preferred = linePreferenceTable.preferredLines(ClientIpResolver.resolve(request));
+        LineSnapshot snapshot = accessLineService.getSnapshot(lineType, preferred);
+        if (snapshot.matches(ifNoneMatch)) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED)
+                    .eTag(snapshot.etag())
+                    .cacheControl(CacheControl.noCache())
+                    .build();
+        }
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_JSON)
+                .eTag(snapshot.etag())
+                .cacheControl(CacheControl.noCache())
+                .body(snapshot.body());
     }
 
     /**
-     * Generate a new captcha token for login.
+     * Active lines of a type ranked by recent latency (p50/p95) and failure rate, best first.
+     * Served from a precomputed in-memory ranking.
+     */
+    @GetMapping("/lines/best")
+    public ResponseEntity<ApiResponse<List<BestLineResponse>>> getBestLines(@RequestParam("type") String type) {
+        AccessLine.LineType lineType;
+        try {
+            lineType = AccessLine.LineType.valueOf(type.toUpperCase());
+        } catch (IllegalArgumentException ex) {
+            return ResponseEntity.badRequest()
+                    .body(ApiResponse.error(400, "Invalid line type"));
+        }
+        return ResponseEntity.ok(ApiResponse.success(accessLineService.getBestLines(lineType)));
+    }
+
+    /**
+     * Latencies measured by a client, added to the rolling statistics of the lines.
+     * Limited per client IP, in reports and in samples per line over the statistics window; samples
+     * for unknown or inactive lines are ignored, and client samples are capped relative to probe samples.
+     */
+    @PostMapping("/lines/latency")
+    public ResponseEntity<ApiResponse<Void>> reportLatency(@Valid @RequestBody LatencyReportRequest request,
+                                                           HttpServletRequest httpRequest) {
+        String clientIp = latencyReportThrottle.clientIp(httpRequest);
+        if (!latencyReportThrottle.tryAcquire(clientIp)) {
+            throw new ResponseStatusException(HttpStatus.TOO_MANY_REQUESTS, "Too many latency reports");
+        }
+        for (LatencySampleRequest sample : request.getSamples()) {
+            if (latencyReportThrottle.tryAcquireSample(clientIp, sample.getLineId())) {
+                accessLineService.recordClientLatency(sample.getLineId(), sample.getLatencyMs());
+            }
+        }
+        return ResponseEntity.ok(ApiResponse.success("Recorded", null));
+    }
+
+    /**
+     * Server-Sent Events stream of the active lines of a type: a "snapshot" event with the same JSON
+     * as /lines, then a "delta" event whenever a line's latency, details or availability changes.
+     * Like /lines, the order follows the client network's preferred lines.
+     */
+    @GetMapping("/lines/stream")
+    public ResponseEntity<SseEmitter> streamLines(@RequestParam("type") String type, HttpServletRequest request) {
+        AccessLine.LineType lineType;
+        try {
+            lineType = AccessLine.LineType.valueOf(type.toUpperCase());
+        } catch (IllegalArgumentException ex) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Invalid line type");
+        }
+        List<Long> preferred = linePreferenceTable.preferredLines(ClientIpResolver.resolve(request));
+        SseEmitter emitter = lineStreamBroadcaster.subscribe(lineType, preferred);
+        if (emitter == null) {
+            throw new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE, "Too many line streams open");
+        }
+        return ResponseEntity.ok()
+                .header("X-Accel-Buffering", "no")
+                .body(emitter);
+    }
+
+    /**
+     * Generate a new captcha token for login, with the code returned as JSON for client-side drawing.
+     * Not available with "captcha.image.enabled": the code then only leaves the server as an image.
      */
     @GetMapping("/captcha")
     public ResponseEntity<ApiResponse<CaptchaResponse>> captcha() {
+        if (captchaService.isImageEnabled()) {
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND, "Captcha is served as an image at /api/public/captcha/image");
+        }
         return ResponseEntity.ok(ApiResponse.success(captchaService.createCaptcha()));
     }
-}
 
+    /**
+     * Generate a new captcha token for login as a server-rendered PNG ("captcha.image.enabled").
+     * The token travels in the X-Captcha-Token header. The pooled image is written straight from
+     * its buffer, which is then recycled.
+     */
+    @GetMapping("/captcha/image")
+    public ResponseEntity<StreamingResponseBody> captchaImage() {
+        if (!captchaService.isImageEnabled()) {
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND, "Captcha images are disabled");
+        }
+        IssuedCaptchaImage issued = captchaService.createCaptchaImage();
+        CaptchaImage image = issued.image();
+        return ResponseEntity.ok()
+                .contentType(MediaType.IMAGE_PNG)
+                .contentLength(image.length())
+                .cacheControl(CacheControl.noStore())
+                .header(CAPTCHA_TOKEN_HEADER, issued.token())
+                .header(CAPTCHA_EXPIRES_HEADER,
+                        LocalDateTime.ofInstant(issued.expiresAt(), ZoneId.systemDefault()).toString())
+                .body(out -> {
+                    try {
+                        out.write(image.buffer(), 0, image.length());
+                    } finally {
+                        captchaService.releaseImage(image);
+                    }
+                });
+    }
+}
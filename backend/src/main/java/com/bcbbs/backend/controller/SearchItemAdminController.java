@@ -0,0 +1,55 @@
+package com.bcbbs.backend.controller;
+
+import com.bcbbs.backend.dto.ApiResponse;
+import com.bcbbs.backend.dto.SearchImportResponse;
+import com.bcbbs.backend.search.SearchItemImporter;
+import jakarta.servlet.http.HttpServletRequest;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.io.IOException;
+
+/**
+ * Search item maintenance; restricted to ADMIN users in SecurityConfig.
+ */
+@RestController
+@RequestMapping("/api/admin/search-items")
+@RequiredArgsConstructor
+public class SearchItemAdminController {
+
+    private static final MediaType NDJSON = MediaType.parseMediaType("application/x-ndjson");
+    private static final MediaType CSV = MediaType.parseMediaType("text/csv");
+
+    private final SearchItemImporter searchItemImporter;
+
+    /**
+     * Bulk import from the request body, streamed: NDJSON (application/x-ndjson) with one
+     * {"title", "description", "url"} object per line, or CSV (text/csv) with a header row.
+     * Invalid records are skipped and reported, and a malformed CSV record ends the import with the
+     * rows before it kept; the search index picks up the rows afterwards.
+     */
+    @PostMapping("/import")
+    public ResponseEntity<ApiResponse<SearchImportResponse>> importItems(HttpServletRequest request) throws IOException {
+        MediaType contentType;
+        try {
+            contentType = request.getContentType() == null ? null : MediaType.parseMediaType(request.getContentType());
+        } catch (IllegalArgumentException ex) {
+            contentType = null;
+        }
+        SearchImportResponse result;
+        if (contentType != null && NDJSON.includes(contentType)) {
+            result = searchItemImporter.importNdjson(request.getInputStream());
+        } else if (contentType != null && CSV.includes(contentType)) {
+            result = searchItemImporter.importCsv(request.getInputStream());
+        } else {
+            return ResponseEntity.status(HttpStatus.UNSUPPORTED_MEDIA_TYPE)
+                    .body(ApiResponse.error(415, "Content-Type must be application/x-ndjson or text/csv"));
+        }
+        return ResponseEntity.ok(ApiResponse.success(result));
+    }
+}
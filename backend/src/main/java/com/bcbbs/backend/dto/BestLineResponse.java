@@ -0,0 +1,25 @@
+package com.bcbbs.backend.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * One line in the best-line ranking, with its rolling latency statistics.
+ * Statistics are null for lines without recent samples.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class BestLineResponse {
+
+    private Long id;
+    private String name;
+    private String url;
+    private Integer p50Ms;
+    private Integer p95Ms;
+    private Double failureRate;
+    private Long samples;
+}
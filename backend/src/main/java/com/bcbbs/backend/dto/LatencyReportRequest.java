@@ -0,0 +1,22 @@
+package com.bcbbs.backend.dto;
+
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.Size;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class LatencyReportRequest {
+
+    @NotEmpty(message = "Samples cannot be empty")
+    @Size(max = 20, message = "At most 20 samples per report")
+    private List<@Valid LatencySampleRequest> samples;
+}
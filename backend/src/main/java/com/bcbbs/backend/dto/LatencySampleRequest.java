@@ -0,0 +1,24 @@
+package com.bcbbs.backend.dto;
+
+import jakarta.validation.constraints.Max;
+import jakarta.validation.constraints.Min;
+import jakarta.validation.constraints.NotNull;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class LatencySampleRequest {
+
+    @NotNull(message = "Line id cannot be empty")
+    private Long lineId;
+
+    // Measured latency; null when the line could not be reached
+    @Min(value = 0, message = "Latency cannot be negative")
+    @Max(value = 60000, message = "Latency must be at most 60000 ms")
+    private Integer latencyMs;
+}
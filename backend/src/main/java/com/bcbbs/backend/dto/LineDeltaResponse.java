@@ -0,0 +1,29 @@
+package com.bcbbs.backend.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * Change to the active lines of one type, pushed on the line stream.
+ * Clients replace lines in "updated" by id (adding new ones), drop the ids in "removed", and
+ * reorder by "order" when present.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class LineDeltaResponse {
+
+    private String type;
+    private List<LineResponse> updated;
+    private List<Long> removed;
+
+    // Ids in display order; only sent when the order or the set of lines changed
+    private List<Long> order;
+}
@@ -0,0 +1,23 @@
+package com.bcbbs.backend.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class SearchImportResponse {
+
+    private long imported;
+    private long rejected;
+    private long durationMs;
+    private long itemsPerSecond;
+
+    // First few rejected rows with their line numbers
+    private List<String> errors;
+}
@@ -1,5 +1,6 @@
 package com.bcbbs.backend.dto;
 
+import com.fasterxml.jackson.annotation.JsonInclude;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
@@ -15,5 +16,9 @@ public class SearchItemResponse {
     private String title;
     private String description;
     private String url;
+
+    // Relevance score; present only when results are ranked
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private Double score;
 }
 
@@ -0,0 +1,20 @@
+package com.bcbbs.backend.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class SearchPageResponse {
+
+    private List<SearchItemResponse> items;
+
+    // Opaque cursor for the next page; null on the last page
+    private String nextCursor;
+}
@@ -1,5 +1,6 @@
 package com.bcbbs.backend.entity;
 
+import com.bcbbs.backend.lines.AccessLineEntityListener;
 import jakarta.persistence.*;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
@@ -14,6 +15,7 @@ import java.time.LocalDateTime;
 @AllArgsConstructor
 @Entity
 @Table(name = "access_lines")
+@EntityListeners(AccessLineEntityListener.class)
 public class AccessLine {
 
     public enum LineType {
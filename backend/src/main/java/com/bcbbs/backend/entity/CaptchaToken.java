@@ -3,6 +3,7 @@ package com.bcbbs.backend.entity;
 import jakarta.persistence.Column;
 import jakarta.persistence.Entity;
 import jakarta.persistence.Id;
+import jakarta.persistence.Index;
 import jakarta.persistence.Table;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
@@ -16,7 +17,8 @@ import java.time.LocalDateTime;
 @NoArgsConstructor
 @AllArgsConstructor
 @Entity
-@Table(name = "captcha_tokens")
+// expires_at index lets the purge job delete expired rows in small ordered batches
+@Table(name = "captcha_tokens", indexes = @Index(name = "idx_captcha_tokens_expires_at", columnList = "expires_at"))
 public class CaptchaToken {
 
     // Unique token used to reference a captcha
@@ -1,5 +1,6 @@
 package com.bcbbs.backend.entity;
 
+import com.bcbbs.backend.search.SearchItemEntityListener;
 import jakarta.persistence.*;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
@@ -14,6 +15,7 @@ import java.time.LocalDateTime;
 @AllArgsConstructor
 @Entity
 @Table(name = "search_items")
+@EntityListeners(SearchItemEntityListener.class)
 public class SearchItem {
 
     @Id
@@ -1,10 +1,15 @@
 package com.bcbbs.backend.entity;
 
 import jakarta.persistence.*;
+import lombok.AccessLevel;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
 import lombok.NoArgsConstructor;
+import lombok.Setter;
+import lombok.ToString;
 import org.springframework.security.core.GrantedAuthority;
 import org.springframework.security.core.authority.SimpleGrantedAuthority;
 import org.springframework.security.core.userdetails.UserDetails;
@@ -12,6 +17,7 @@ import org.springframework.security.core.userdetails.UserDetails;
 import java.time.LocalDateTime;
 import java.util.Collection;
 import java.util.List;
+import java.util.Objects;
 
 @Data
 @Builder
@@ -58,12 +64,38 @@ public class User implements UserDetails {
     @Column(name = "login_count_without_change")
     @Builder.Default
     private Integer loginCountWithoutChange = 0;
+
+    // Version embedded in issued JWTs; bumping it revokes every token issued before
+    @Column(name = "token_version")
+    @Builder.Default
+    private Integer tokenVersion = 0;
     
     @Column(name = "created_at")
     private LocalDateTime createdAt;
     
     @Column(name = "updated_at")
     private LocalDateTime updatedAt;
+
+    // Role and enabled flag as loaded, to detect changes that must revoke issued tokens
+    @Transient
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
+    @EqualsAndHashCode.Exclude
+    @ToString.Exclude
+    private Role loadedRole;
+
+    @Transient
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
+    @EqualsAndHashCode.Exclude
+    @ToString.Exclude
+    private Boolean loadedEnabled;
+    
+    @PostLoad
+    protected void onLoad() {
+        loadedRole = role;
+        loadedEnabled = enabled;
+    }
     
     @PrePersist
     protected void onCreate() {
@@ -74,6 +106,12 @@ public class User implements UserDetails {
     @PreUpdate
     protected void onUpdate() {
         updatedAt = LocalDateTime.now();
+        // Tokens carry role and enabled as claims; a change to either revokes them
+        if (loadedRole != null && (role != loadedRole || !Objects.equals(enabled, loadedEnabled))) {
+            tokenVersion = (tokenVersion != null ? tokenVersion : 0) + 1;
+        }
+        loadedRole = role;
+        loadedEnabled = enabled;
     }
     
     @Override
@@ -0,0 +1,9 @@
+package com.bcbbs.backend.lines;
+
+/**
+ * Published when an access line is created, updated or deleted.
+ *
+ * @param id access line id
+ */
+public record AccessLineChangedEvent(Long id) {
+}
@@ -0,0 +1,28 @@
+package com.bcbbs.backend.lines;
+
+import com.bcbbs.backend.entity.AccessLine;
+import jakarta.persistence.PostPersist;
+import jakarta.persistence.PostRemove;
+import jakarta.persistence.PostUpdate;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Component;
+
+/**
+ * JPA listener on {@link AccessLine} that turns entity writes into {@link AccessLineChangedEvent}s.
+ */
+@Component
+public class AccessLineEntityListener {
+
+    private final ApplicationEventPublisher eventPublisher;
+
+    public AccessLineEntityListener(ApplicationEventPublisher eventPublisher) {
+        this.eventPublisher = eventPublisher;
+    }
+
+    @PostPersist
+    @PostUpdate
+    @PostRemove
+    public void onChanged(AccessLine line) {
+        eventPublisher.publishEvent(new AccessLineChangedEvent(line.getId()));
+    }
+}
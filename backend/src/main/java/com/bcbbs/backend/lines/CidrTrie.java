@@ -0,0 +1,174 @@
+package com.bcbbs.backend.lines;
+
+import java.util.Arrays;
+
+/**
+ * Longest-prefix match of IPv4 addresses against CIDR blocks.
+ * <p>
+ * A binary trie stored in flat int arrays: node {@code n} has its children at
+ * {@code children[2n]} (bit 0) and {@code children[2n + 1]} (bit 1), 0 meaning none, and the value
+ * of the block ending there at {@code values[n]}, -1 meaning none. A lookup walks at most one node
+ * per prefix bit and allocates nothing. Built once by {@link Builder}, then immutable and safe to
+ * share between threads.
+ */
+public final class CidrTrie {
+
+    public static final CidrTrie EMPTY = new Builder().build();
+
+    private final int[] children;
+    private final int[] values;
+    private final int blocks;
+
+    private CidrTrie(int[] children, int[] values, int blocks) {
+        this.children = children;
+        this.values = values;
+        this.blocks = blocks;
+    }
+
+    /**
+     * Value of the longest block containing the address.
+     *
+     * @param address IPv4 address, most significant octet first
+     * @return the value, or -1 if no block contains the address
+     */
+    public int lookup(int address) {
+        int node = 0;
+        int match = values[0];
+        for (int bit = 31; bit >= 0; bit--) {
+            node = children[(node << 1) | ((address >>> bit) & 1)];
+            if (node == 0) {
+                break;
+            }
+            if (values[node] >= 0) {
+                match = values[node];
+            }
+        }
+        return match;
+    }
+
+    /**
+     * Value of the longest block containing the address in dotted-quad form.
+     * IPv4-mapped IPv6 addresses ("::ffff:1.2.3.4") are accepted; other addresses match nothing.
+     */
+    public int lookup(CharSequence address) {
+        long parsed = parseAddress(address);
+        return parsed < 0 ? -1 : lookup((int) parsed);
+    }
+
+    /**
+     * Number of blocks in the trie.
+     */
+    public int size() {
+        return blocks;
+    }
+
+    /**
+     * Parse a dotted-quad IPv4 address without allocating.
+     *
+     * @return the address as an unsigned 32-bit value, or -1 if the text is not an IPv4 address
+     */
+    public static long parseAddress(CharSequence text) {
+        if (text == null) {
+            return -1;
+        }
+        int start = 0;
+        // IPv4-mapped IPv6: keep what follows the last colon
+        for (int i = text.length() - 1; i >= 0; i--) {
+            if (text.charAt(i) == ':') {
+                start = i + 1;
+                break;
+            }
+        }
+        long address = 0;
+        int octets = 0;
+        int octet = -1;
+        for (int i = start; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (c >= '0' && c <= '9') {
+                octet = octet < 0 ? c - '0' : octet * 10 + (c - '0');
+                if (octet > 255) {
+                    return -1;
+                }
+            } else if (c == '.' && octet >= 0 && octets < 3) {
+                address = (address << 8) | octet;
+                octets++;
+                octet = -1;
+            } else {
+                return -1;
+            }
+        }
+        if (octet < 0 || octets != 3) {
+            return -1;
+        }
+        return (address << 8) | octet;
+    }
+
+    /**
+     * Collects CIDR blocks; a block added twice keeps the last value.
+     */
+    public static final class Builder {
+
+        private int[] children = new int[64];
+        private int[] values = new int[32];
+        private int nodes = 1;
+        private int blocks;
+
+        public Builder() {
+            values[0] = -1;
+        }
+
+        /**
+         * Add a block in "a.b.c.d/len" form (a bare address is a /32).
+         *
+         * @throws IllegalArgumentException if the block is malformed
+         */
+        public Builder add(String cidr, int value) {
+            int slash = cidr.indexOf('/');
+            long address = parseAddress(slash < 0 ? cidr : cidr.substring(0, slash));
+            int length;
+            try {
+                length = slash < 0 ? 32 : Integer.parseInt(cidr.substring(slash + 1));
+            } catch (NumberFormatException e) {
+                length = -1;
+            }
+            if (address < 0 || length < 0 || length > 32 || cidr.indexOf(':') >= 0) {
+                throw new IllegalArgumentException("Invalid IPv4 CIDR block: " + cidr);
+            }
+            return add((int) address, length, value);
+        }
+
+        public Builder add(int address, int length, int value) {
+            if (value < 0) {
+                throw new IllegalArgumentException("value must not be negative");
+            }
+            int node = 0;
+            for (int i = 0; i < length; i++) {
+                int slot = (node << 1) | ((address >>> (31 - i)) & 1);
+                if (children[slot] == 0) {
+                    // Allocate first: newNode() may replace the array
+                    int created = newNode();
+                    children[slot] = created;
+                }
+                node = children[slot];
+            }
+            if (values[node] < 0) {
+                blocks++;
+            }
+            values[node] = value;
+            return this;
+        }
+
+        public CidrTrie build() {
+            return new CidrTrie(Arrays.copyOf(children, nodes * 2), Arrays.copyOf(values, nodes), blocks);
+        }
+
+        private int newNode() {
+            if (nodes == values.length) {
+                values = Arrays.copyOf(values, nodes * 2);
+                children = Arrays.copyOf(children, nodes * 4);
+            }
+            values[nodes] = -1;
+            return nodes++;
+        }
+    }
+}
@@ -0,0 +1,178 @@
+package com.bcbbs.backend.lines;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Rolling latency histogram of one line over the last {@code slotCount * slotMillis}.
+ * <p>
+ * Latencies fall into fixed log-scale buckets (each about 19% wider than the previous, from 1ms to
+ * 60s), so percentiles are reported as the upper bound of their bucket. Samples go into a ring of
+ * time slots; a slot is cleared when the ring comes back to it, which drops the oldest slot's
+ * samples as a whole. Recording and summarizing only use atomics: no locks, and a concurrent
+ * rotation may lose the odd sample, which is acceptable for an estimate.
+ * <p>
+ * Client-reported samples are untrusted, so they are capped relative to the prober's: a client
+ * sample is dropped once the window holds {@code clientShare} client samples per probe sample.
+ */
+public class LatencyHistogram {
+
+    // Upper bound in milliseconds of each bucket but the last, which is open-ended
+    private static final int[] BOUNDS = bounds(60_000);
+
+    private final long slotMillis;
+    private final double clientShare;
+    private final Slot[] slots;
+
+    public LatencyHistogram(int slotCount, long slotMillis, double clientShare) {
+        this.slotMillis = slotMillis;
+        this.clientShare = clientShare;
+        this.slots = new Slot[slotCount];
+        for (int i = 0; i < slotCount; i++) {
+            slots[i] = new Slot();
+        }
+    }
+
+    /**
+     * Record a probe result.
+     *
+     * @param latencyMillis measured latency, or null if the line could not be reached
+     */
+    public void recordProbe(Integer latencyMillis, long nowMillis) {
+        Slot slot = current(nowMillis);
+        slot.probeSamples.incrementAndGet();
+        record(slot, latencyMillis);
+    }
+
+    /**
+     * Record a client-reported result, unless the window already holds its share of client samples.
+     * The check is not atomic with the increment, so concurrent reports may overshoot the cap slightly.
+     *
+     * @param latencyMillis measured latency, or null if the line could not be reached
+     * @return whether the sample was recorded
+     */
+    public boolean recordClient(Integer latencyMillis, long nowMillis) {
+        long epoch = nowMillis / slotMillis;
+        long probeSamples = 0;
+        long clientSamples = 0;
+        for (Slot slot : slots) {
+            if (inWindow(slot, epoch)) {
+                probeSamples += slot.probeSamples.get();
+                clientSamples += slot.clientSamples.get();
+            }
+        }
+        if (clientSamples >= clientShare * probeSamples) {
+            return false;
+        }
+        Slot slot = current(nowMillis);
+        slot.clientSamples.incrementAndGet();
+        record(slot, latencyMillis);
+        return true;
+    }
+
+    private static void record(Slot slot, Integer latencyMillis) {
+        if (latencyMillis == null) {
+            slot.failures.incrementAndGet();
+            return;
+        }
+        int bucket = Arrays.binarySearch(BOUNDS, Math.max(latencyMillis, 0));
+        slot.counts.incrementAndGet(bucket >= 0 ? bucket : -bucket - 1);
+    }
+
+    /**
+     * Percentiles and failure count over the slots still inside the window.
+     */
+    public Summary summarize(long nowMillis) {
+        long epoch = nowMillis / slotMillis;
+        long[] counts = new long[BOUNDS.length + 1];
+        long total = 0;
+        long failures = 0;
+        for (Slot slot : slots) {
+            if (!inWindow(slot, epoch)) {
+                continue;
+            }
+            for (int i = 0; i < counts.length; i++) {
+                long count = slot.counts.get(i);
+                counts[i] += count;
+                total += count;
+            }
+            failures += slot.failures.get();
+        }
+        return new Summary(total, failures, percentile(counts, total, 0.50), percentile(counts, total, 0.95));
+    }
+
+    private boolean inWindow(Slot slot, long epoch) {
+        long slotEpoch = slot.epoch.get();
+        return slotEpoch > epoch - slots.length && slotEpoch <= epoch;
+    }
+
+    private Slot current(long nowMillis) {
+        long epoch = nowMillis / slotMillis;
+        Slot slot = slots[(int) (epoch % slots.length)];
+        long seen = slot.epoch.get();
+        if (seen < epoch && slot.epoch.compareAndSet(seen, epoch)) {
+            // This writer won the rotation; the slot held samples from a full window ago
+            for (int i = 0; i < slot.counts.length(); i++) {
+                slot.counts.set(i, 0);
+            }
+            slot.failures.set(0);
+            slot.probeSamples.set(0);
+            slot.clientSamples.set(0);
+        }
+        return slot;
+    }
+
+    private static Integer percentile(long[] counts, long total, double quantile) {
+        if (total == 0) {
+            return null;
+        }
+        long rank = (long) Math.ceil(quantile * total);
+        long seen = 0;
+        for (int i = 0; i < counts.length; i++) {
+            seen += counts[i];
+            if (seen >= rank) {
+                return i < BOUNDS.length ? BOUNDS[i] : BOUNDS[BOUNDS.length - 1];
+            }
+        }
+        return BOUNDS[BOUNDS.length - 1];
+    }
+
+    private static int[] bounds(int max) {
+        int[] bounds = new int[128];
+        int count = 0;
+        double bound = 1;
+        while (bound <= max) {
+            int rounded = (int) Math.round(bound);
+            if (count == 0 || rounded > bounds[count - 1]) {
+                bounds[count++] = rounded;
+            }
+            bound *= 1.1892; // 2^(1/4)
+        }
+        return Arrays.copyOf(bounds, count);
+    }
+
+    /**
+     * @param samples  successful samples in the window
+     * @param failures failed samples in the window
+     * @param p50      median latency in milliseconds, null without samples
+     * @param p95      95th percentile latency in milliseconds, null without samples
+     */
+    public record Summary(long samples, long failures, Integer p50, Integer p95) {
+
+        public double failureRate() {
+            long attempts = samples + failures;
+            return attempts == 0 ? 0 : (double) failures / attempts;
+        }
+    }
+
+    private static final class Slot {
+
+        private final AtomicLong epoch = new AtomicLong(Long.MIN_VALUE);
+        private final AtomicLongArray counts = new AtomicLongArray(BOUNDS.length + 1);
+        private final AtomicLong failures = new AtomicLong();
+        // Samples by source, successful or failed
+        private final AtomicLong probeSamples = new AtomicLong();
+        private final AtomicLong clientSamples = new AtomicLong();
+    }
+}
@@ -0,0 +1,82 @@
+package com.bcbbs.backend.lines;
+
+import com.bcbbs.backend.config.ClientIpResolver;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import jakarta.servlet.http.HttpServletRequest;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Per-client limits on client latency reports: at most "lines.best.report-limit" reports per client
+ * address in each "lines.best.report-window-ms" window, and at most "lines.best.report-line-samples"
+ * samples per line and client over the statistics window, so no single client can fill a line's
+ * share of client samples. Windows start with a client's first report; counters live in bounded
+ * caches, so a flood of distinct addresses only evicts counters.
+ * <p>
+ * The client address is the remote address, or the X-Forwarded-For hop in front of the
+ * "lines.best.trusted-proxies"; a forwarded header from anyone else is ignored.
+ */
+@Component
+public class LatencyReportThrottle {
+
+    private final int limit;
+    private final int lineSamples;
+    private final List<String> trustedProxies;
+    private final Cache<String, AtomicInteger> counters;
+    private final Cache<String, Map<Long, AtomicInteger>> lineCounters;
+
+    public LatencyReportThrottle(@Value("${lines.best.report-limit:6}") int limit,
+                                 @Value("${lines.best.report-window-ms:60000}") long windowMillis,
+                                 @Value("${lines.best.report-clients:100000}") long maxClients,
+                                 @Value("${lines.best.report-line-samples:1}") int lineSamples,
+                                 @Value("${lines.best.window-slots:10}") int windowSlots,
+                                 @Value("${lines.best.slot-ms:60000}") long slotMillis,
+                                 @Value("${lines.best.trusted-proxies:}") List<String> trustedProxies) {
+        this.limit = limit;
+        this.lineSamples = lineSamples;
+        this.trustedProxies = List.copyOf(trustedProxies);
+        // Counters are updated in place, so the entry still expires one window after its creation
+        this.counters = Caffeine.newBuilder()
+                .maximumSize(maxClients)
+                .expireAfterWrite(Duration.ofMillis(windowMillis))
+                .build();
+        this.lineCounters = Caffeine.newBuilder()
+                .maximumSize(maxClients)
+                .expireAfterWrite(Duration.ofMillis(windowSlots * slotMillis))
+                .build();
+    }
+
+    /**
+     * Address the limits apply to.
+     */
+    public String clientIp(HttpServletRequest request) {
+        return ClientIpResolver.resolveTrusted(request, trustedProxies);
+    }
+
+    /**
+     * Count a report from the client.
+     *
+     * @return false if the client has used up its reports for the current window
+     */
+    public boolean tryAcquire(String clientIp) {
+        return counters.get(clientIp, ip -> new AtomicInteger()).incrementAndGet() <= limit;
+    }
+
+    /**
+     * Count a sample from the client for a line.
+     *
+     * @return false if the client has used up its samples of the line for the statistics window
+     */
+    public boolean tryAcquireSample(String clientIp, long lineId) {
+        return lineCounters.get(clientIp, ip -> new ConcurrentHashMap<>())
+                .computeIfAbsent(lineId, id -> new AtomicInteger())
+                .incrementAndGet() <= lineSamples;
+    }
+}
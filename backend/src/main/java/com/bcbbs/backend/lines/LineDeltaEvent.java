@@ -0,0 +1,13 @@
+package com.bcbbs.backend.lines;
+
+import com.bcbbs.backend.dto.LineDeltaResponse;
+import com.bcbbs.backend.entity.AccessLine;
+
+/**
+ * Published when a refreshed line snapshot differs from the previous one.
+ *
+ * @param snapshot the new snapshot
+ * @param delta    what changed relative to the previous snapshot
+ */
+public record LineDeltaEvent(AccessLine.LineType type, LineSnapshot snapshot, LineDeltaResponse delta) {
+}
@@ -0,0 +1,166 @@
+package com.bcbbs.backend.lines;
+
+import com.bcbbs.backend.entity.AccessLine;
+import com.bcbbs.backend.repository.AccessLineRepository;
+import com.bcbbs.backend.service.AccessLineService;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Measures the latency of every active access line and stores it in last_ping_ms.
+ * <p>
+ * Runs on the scheduler, never on request threads. All lines are probed at once with asynchronous
+ * HEAD requests (at most "lines.probe.max-concurrency" in flight), each bounded by
+ * "lines.probe.timeout-ms", so a round over hundreds of lines takes about one timeout at worst.
+ * Latency is the time to the response headers; any HTTP status counts as reachable, and failed or
+ * timed-out lines get null. Results are written in one JDBC batch and fed to the rolling latency
+ * statistics, then the line snapshots reload.
+ */
+@Component
+@ConditionalOnProperty(name = "lines.probe.enabled", havingValue = "true", matchIfMissing = true)
+public class LineLatencyProber {
+
+    private static final Logger logger = LoggerFactory.getLogger(LineLatencyProber.class);
+
+    private static final String UPDATE_SQL = "UPDATE access_lines SET last_ping_ms = ? WHERE id = ?";
+    private static final String USER_AGENT = "bcbbs-line-prober";
+    // Time allowed on top of the request timeout for the last responses to be handled
+    private static final long COMPLETION_GRACE_MS = 1000;
+
+    private final AccessLineRepository accessLineRepository;
+    private final AccessLineService accessLineService;
+    private final JdbcTemplate jdbcTemplate;
+    private final HttpClient httpClient;
+    private final Duration timeout;
+    private final int maxConcurrency;
+
+    private final Timer roundTimer;
+    private final Counter failures;
+
+    public LineLatencyProber(AccessLineRepository accessLineRepository,
+                             AccessLineService accessLineService,
+                             JdbcTemplate jdbcTemplate,
+                             MeterRegistry meterRegistry,
+                             @Value("${lines.probe.timeout-ms:3000}") long timeoutMillis,
+                             @Value("${lines.probe.max-concurrency:256}") int maxConcurrency) {
+        this.accessLineRepository = accessLineRepository;
+        this.accessLineService = accessLineService;
+        this.jdbcTemplate = jdbcTemplate;
+        this.timeout = Duration.ofMillis(timeoutMillis);
+        this.maxConcurrency = maxConcurrency;
+        this.httpClient = HttpClient.newBuilder()
+                .connectTimeout(timeout)
+                // Measure the line itself, not where it redirects to
+                .followRedirects(HttpClient.Redirect.NEVER)
+                .build();
+        this.roundTimer = Timer.builder("lines.probe.round")
+                .description("Time to probe all active access lines")
+                .register(meterRegistry);
+        this.failures = Counter.builder("lines.probe.failures")
+                .description("Line probes that failed or timed out")
+                .register(meterRegistry);
+    }
+
+    @Scheduled(initialDelayString = "${lines.probe.initial-delay-ms:10000}",
+            fixedDelayString = "${lines.probe.interval-ms:60000}")
+    public void probeAll() {
+        List<AccessLine> lines = accessLineRepository.findByActiveTrue();
+        if (lines.isEmpty()) {
+            return;
+        }
+        Map<Long, Integer> latencies = roundTimer.record(() -> probe(lines));
+
+        List<Object[]> rows = new ArrayList<>(latencies.size());
+        latencies.forEach((id, latency) -> rows.add(new Object[]{latency, id}));
+        jdbcTemplate.batchUpdate(UPDATE_SQL, rows);
+        latencies.forEach(accessLineService::recordProbeLatency);
+        // The batch bypasses the entity listener
+        accessLineService.scheduledRefresh();
+
+        long reachable = latencies.values().stream().filter(latency -> latency != null).count();
+        logger.debug("Line probe completed - lines: {}, reachable: {}", latencies.size(), reachable);
+    }
+
+    /**
+     * Probe the URLs of the lines concurrently.
+     *
+     * @return latency in milliseconds by line id, null for lines that could not be reached in time
+     */
+    public Map<Long, Integer> probe(List<AccessLine> lines) {
+        Semaphore permits = new Semaphore(maxConcurrency);
+        Map<Long, CompletableFuture<Integer>> pending = new LinkedHashMap<>();
+        for (AccessLine line : lines) {
+            try {
+                permits.acquire();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+            pending.put(line.getId(), probe(line.getUrl()).whenComplete((latency, error) -> permits.release()));
+        }
+
+        CompletableFuture<Void> all = CompletableFuture.allOf(pending.values().toArray(CompletableFuture[]::new));
+        try {
+            all.get(timeout.toMillis() + COMPLETION_GRACE_MS, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException | ExecutionException e) {
+            // Whatever has not completed by now counts as unreachable
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+
+        Map<Long, Integer> latencies = new HashMap<>();
+        for (AccessLine line : lines) {
+            CompletableFuture<Integer> future = pending.get(line.getId());
+            latencies.put(line.getId(), future == null ? null : future.getNow(null));
+        }
+        return latencies;
+    }
+
+    private CompletableFuture<Integer> probe(String url) {
+        HttpRequest request;
+        try {
+            request = HttpRequest.newBuilder(URI.create(url.trim()))
+                    .method("HEAD", HttpRequest.BodyPublishers.noBody())
+                    .timeout(timeout)
+                    .header("User-Agent", USER_AGENT)
+                    .build();
+        } catch (IllegalArgumentException e) {
+            // Malformed URL or a scheme other than http(s)
+            failures.increment();
+            return CompletableFuture.completedFuture(null);
+        }
+        long start = System.nanoTime();
+        return httpClient.sendAsync(request, HttpResponse.BodyHandlers.discarding())
+                .handle((response, error) -> {
+                    if (error != null) {
+                        failures.increment();
+                        return null;
+                    }
+                    return (int) Math.max(1, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+                });
+    }
+}
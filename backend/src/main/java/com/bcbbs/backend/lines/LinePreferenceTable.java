@@ -0,0 +1,128 @@
+package com.bcbbs.backend.lines;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Preferred access lines by client network, so each ISP is offered the lines that are fast from it.
+ * <p>
+ * Read from the file at "lines.prefix.file", one rule per row: an IPv4 CIDR block, whitespace, then
+ * line ids separated by commas, best first. Blank rows and rows starting with '#' are ignored, and
+ * the most specific block containing the client wins:
+ * <pre>
+ * # China Telecom
+ * 202.96.0.0/12   3,1
+ * 0.0.0.0/0       1
+ * </pre>
+ * The rules are held in a {@link CidrTrie}; the file is checked every "lines.prefix.reload-ms" and
+ * reloaded when modified. A file that fails to load leaves the previous rules in place.
+ */
+@Component
+public class LinePreferenceTable {
+
+    private static final Logger logger = LoggerFactory.getLogger(LinePreferenceTable.class);
+
+    private static final Table EMPTY = new Table(CidrTrie.EMPTY, List.of(), -1);
+
+    private final Path file;
+
+    private volatile Table table = EMPTY;
+
+    public LinePreferenceTable(MeterRegistry meterRegistry,
+                               @Value("${lines.prefix.file:}") String file) {
+        this.file = file.isBlank() ? null : Path.of(file);
+        Gauge.builder("lines.prefix.blocks", this, preferences -> preferences.table.trie().size())
+                .description("CIDR blocks in the line preference table")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Preferred line ids for the client address, best first.
+     *
+     * @return an unmodifiable list shared by every client of the same rule, or null if no rule
+     * matches or the address is not IPv4
+     */
+    public List<Long> preferredLines(String clientIp) {
+        Table current = table;
+        int rule = current.trie().lookup(clientIp);
+        return rule < 0 ? null : current.preferences().get(rule);
+    }
+
+    @Scheduled(fixedDelayString = "${lines.prefix.reload-ms:60000}")
+    public void reloadIfModified() {
+        if (file == null) {
+            return;
+        }
+        try {
+            long modified = Files.getLastModifiedTime(file).toMillis();
+            if (modified != table.lastModified()) {
+                table = load(modified);
+                logger.info("Line preferences loaded - file: {}, blocks: {}", file, table.trie().size());
+            }
+        } catch (IOException | IllegalArgumentException e) {
+            // Keep the previous rules
+            logger.warn("Line preferences not loaded - file: {}, Error: {}", file, e.getMessage());
+        }
+    }
+
+    private Table load(long lastModified) throws IOException {
+        CidrTrie.Builder trie = new CidrTrie.Builder();
+        List<List<Long>> preferences = new ArrayList<>();
+        // Rules with the same lines share one list
+        Map<List<Long>, Integer> ruleIndex = new HashMap<>();
+        int rowNumber = 0;
+        for (String row : Files.readAllLines(file, StandardCharsets.UTF_8)) {
+            rowNumber++;
+            row = row.strip();
+            if (row.isEmpty() || row.startsWith("#")) {
+                continue;
+            }
+            String[] fields = row.split("\\s+", 2);
+            if (fields.length < 2) {
+                throw new IllegalArgumentException("Row " + rowNumber + " has no line ids");
+            }
+            List<Long> lineIds = new ArrayList<>();
+            for (String id : fields[1].split(",")) {
+                try {
+                    lineIds.add(Long.valueOf(id.strip()));
+                } catch (NumberFormatException e) {
+                    throw new IllegalArgumentException("Row " + rowNumber + " has an invalid line id: " + id);
+                }
+            }
+            List<Long> key = List.copyOf(lineIds);
+            Integer rule = ruleIndex.get(key);
+            if (rule == null) {
+                rule = preferences.size();
+                preferences.add(key);
+                ruleIndex.put(key, rule);
+            }
+            try {
+                trie.add(fields[0], rule);
+            } catch (IllegalArgumentException e) {
+                throw new IllegalArgumentException("Row " + rowNumber + ": " + e.getMessage());
+            }
+        }
+        return new Table(trie.build(), List.copyOf(preferences), lastModified);
+    }
+
+    /**
+     * @param trie        rule index by CIDR block
+     * @param preferences line ids of each rule
+     */
+    private record Table(CidrTrie trie, List<List<Long>> preferences, long lastModified) {
+    }
+}
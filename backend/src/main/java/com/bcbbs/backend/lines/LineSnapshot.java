@@ -0,0 +1,43 @@
+package com.bcbbs.backend.lines;
+
+import com.bcbbs.backend.dto.LineResponse;
+import com.bcbbs.backend.entity.AccessLine;
+
+import java.time.Instant;
+import java.util.List;
+
+/**
+ * Immutable view of the active lines of one type, with the complete JSON response body
+ * (an ApiResponse envelope) serialized once. The ETag is derived from the body, so it only
+ * changes when the content does. The body array is shared and must not be modified.
+ *
+ * @param lines    active lines in display order, unmodifiable
+ * @param body     UTF-8 JSON of ApiResponse.success(lines)
+ * @param etag     strong entity tag, quoted
+ * @param loadedAt when the content last changed
+ */
+public record LineSnapshot(AccessLine.LineType type, List<LineResponse> lines, byte[] body, String etag, Instant loadedAt) {
+
+    /**
+     * Whether an If-None-Match header value names this snapshot's ETag (or is "*").
+     * Weak tags are compared weakly, as RFC 9110 requires for If-None-Match.
+     */
+    public boolean matches(String ifNoneMatch) {
+        if (ifNoneMatch == null || ifNoneMatch.isBlank()) {
+            return false;
+        }
+        for (String candidate : ifNoneMatch.split(",")) {
+            String tag = candidate.trim();
+            if (tag.equals("*")) {
+                return true;
+            }
+            if (tag.startsWith("W/")) {
+                tag = tag.substring(2);
+            }
+            if (tag.equals(etag)) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,358 @@
+package com.bcbbs.backend.lines;
+
+import com.bcbbs.backend.dto.LineDeltaResponse;
+import com.bcbbs.backend.dto.LineResponse;
+import com.bcbbs.backend.entity.AccessLine;
+import com.bcbbs.backend.service.AccessLineService;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyEmitter.DataWithMediaType;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Fan-out of line changes to Server-Sent Events subscribers.
+ * <p>
+ * A subscriber first receives a "snapshot" event (the same JSON as GET /api/public/lines), then a
+ * "delta" event per change of its line type, and a comment every "lines.stream.heartbeat-ms" to keep
+ * proxies from closing the idle connection. Like GET /lines, snapshots and the "order" of deltas
+ * follow the client network's preferred lines ({@link LinePreferenceTable}). Every event is
+ * serialized once per distinct preference and shared by the subscribers that have it. Publishing only appends to each subscriber's bounded queue; a small shared pool of
+ * sender threads drains the queues, so one slow client never delays the others. A client whose
+ * queue overflows is disconnected (EventSource reconnects and starts again from a snapshot).
+ * Open connections hold no request thread.
+ * <p>
+ * Servlet writes block while the client's socket buffer is full. A send still running after
+ * "lines.stream.send-timeout-ms" is treated as a stalled client: the subscriber is dropped and,
+ * until the container's write timeout releases the stuck thread, the pool runs one extra sender in
+ * its place (at most "lines.stream.stalled-sender-threads" extra), so stalled clients never starve
+ * the healthy ones. Emitters are only completed on a sender thread after their last send returns,
+ * never by a publishing thread, which would otherwise block behind a stalled write.
+ */
+@Component
+public class LineStreamBroadcaster {
+
+    private static final Logger logger = LoggerFactory.getLogger(LineStreamBroadcaster.class);
+
+    private static final Set<DataWithMediaType> HEARTBEAT = SseEmitter.event().comment("heartbeat").build();
+
+    private final AccessLineService accessLineService;
+    private final ObjectMapper objectMapper;
+    private final long timeoutMillis;
+    private final int queueCapacity;
+    private final int maxSubscribers;
+    private final long sendTimeoutNanos;
+    private final int senderThreads;
+    private final int stalledSenderThreads;
+
+    private final Set<Subscriber> subscribers = ConcurrentHashMap.newKeySet();
+    private final AtomicInteger subscriberCount = new AtomicInteger();
+    // Sends still blocked on a client that was dropped for stalling
+    private final AtomicInteger stalledSends = new AtomicInteger();
+    private final ThreadPoolExecutor senders;
+    private final Counter dropped;
+    private final Counter stalled;
+
+    public LineStreamBroadcaster(AccessLineService accessLineService,
+                                 ObjectMapper objectMapper,
+                                 MeterRegistry meterRegistry,
+                                 @Value("${lines.stream.timeout-ms:1800000}") long timeoutMillis,
+                                 @Value("${lines.stream.queue-capacity:16}") int queueCapacity,
+                                 @Value("${lines.stream.max-subscribers:10000}") int maxSubscribers,
+                                 @Value("${lines.stream.sender-threads:4}") int senderThreads,
+                                 @Value("${lines.stream.send-timeout-ms:5000}") long sendTimeoutMillis,
+                                 @Value("${lines.stream.stalled-sender-threads:16}") int stalledSenderThreads) {
+        this.accessLineService = accessLineService;
+        this.objectMapper = objectMapper;
+        this.timeoutMillis = timeoutMillis;
+        this.queueCapacity = queueCapacity;
+        this.maxSubscribers = maxSubscribers;
+        this.sendTimeoutNanos = TimeUnit.MILLISECONDS.toNanos(sendTimeoutMillis);
+        this.senderThreads = senderThreads;
+        this.stalledSenderThreads = stalledSenderThreads;
+        AtomicInteger threadNumber = new AtomicInteger();
+        // Core size grows by one per stalled send, see resizeSenders()
+        this.senders = new ThreadPoolExecutor(senderThreads, senderThreads + stalledSenderThreads,
+                60, TimeUnit.SECONDS, new LinkedBlockingQueue<>(), runnable -> {
+            Thread thread = new Thread(runnable, "line-stream-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.dropped = Counter.builder("lines.stream.dropped")
+                .description("Line stream subscribers disconnected for falling behind")
+                .register(meterRegistry);
+        this.stalled = Counter.builder("lines.stream.stalled")
+                .description("Line stream subscribers disconnected because a send exceeded the send timeout")
+                .register(meterRegistry);
+        Gauge.builder("lines.stream.subscribers", subscriberCount, AtomicInteger::get)
+                .description("Open line stream connections")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Open a stream of the lines of the type.
+     *
+     * @param preferredLineIds the client's preferred line ids, best first, or null for the display order
+     * @return the emitter, or null when "lines.stream.max-subscribers" streams are already open
+     */
+    public SseEmitter subscribe(AccessLine.LineType type, List<Long> preferredLineIds) {
+        if (subscriberCount.incrementAndGet() > maxSubscribers) {
+            subscriberCount.decrementAndGet();
+            return null;
+        }
+        SseEmitter emitter = createEmitter(timeoutMillis);
+        Subscriber subscriber = new Subscriber(type, preferredLineIds, emitter);
+        emitter.onCompletion(subscriber::remove);
+        emitter.onTimeout(subscriber::close);
+        emitter.onError(error -> subscriber.remove());
+        // Registered before reading the snapshot, so no change can fall between the two; a delta
+        // queued ahead of the snapshot is superseded by it
+        subscribers.add(subscriber);
+        LineSnapshot snapshot;
+        try {
+            snapshot = accessLineService.getSnapshot(type, preferredLineIds);
+        } catch (RuntimeException e) {
+            subscriber.remove();
+            throw e;
+        }
+        subscriber.offer(SseEmitter.event()
+                .name("snapshot")
+                .data(new String(snapshot.body(), StandardCharsets.UTF_8))
+                .build());
+        return emitter;
+    }
+
+    // Overridden in tests to stand in for slow clients
+    SseEmitter createEmitter(long timeoutMillis) {
+        return new SseEmitter(timeoutMillis);
+    }
+
+    @EventListener
+    public void onLineDelta(LineDeltaEvent event) {
+        LineDeltaResponse delta = event.delta();
+        Set<DataWithMediaType> message = deltaMessage(delta);
+        if (message == null) {
+            return;
+        }
+        // Without a new order the delta is the same for every preference
+        Map<List<Long>, Set<DataWithMediaType>> preferredMessages = new HashMap<>();
+        for (Subscriber subscriber : subscribers) {
+            if (subscriber.type != event.type()) {
+                continue;
+            }
+            if (delta.getOrder() == null || subscriber.preferredLineIds == null) {
+                subscriber.offer(message);
+                continue;
+            }
+            Set<DataWithMediaType> preferred = preferredMessages.computeIfAbsent(subscriber.preferredLineIds,
+                    ids -> deltaMessage(preferredDelta(delta, accessLineService.getSnapshot(event.type(), ids))));
+            if (preferred != null) {
+                subscriber.offer(preferred);
+            }
+        }
+    }
+
+    /**
+     * The delta with the order of the client's preferred snapshot.
+     */
+    private static LineDeltaResponse preferredDelta(LineDeltaResponse delta, LineSnapshot preferredSnapshot) {
+        return LineDeltaResponse.builder()
+                .type(delta.getType())
+                .updated(delta.getUpdated())
+                .removed(delta.getRemoved())
+                .order(preferredSnapshot.lines().stream().map(LineResponse::getId).toList())
+                .build();
+    }
+
+    private Set<DataWithMediaType> deltaMessage(LineDeltaResponse delta) {
+        try {
+            return SseEmitter.event()
+                    .name("delta")
+                    .data(objectMapper.writeValueAsString(delta))
+                    .build();
+        } catch (JsonProcessingException e) {
+            logger.warn("Line delta not serializable - Error: {}", e.getMessage());
+            return null;
+        }
+    }
+
+    @Scheduled(initialDelayString = "${lines.stream.heartbeat-ms:15000}",
+            fixedDelayString = "${lines.stream.heartbeat-ms:15000}")
+    public void heartbeat() {
+        subscribers.forEach(subscriber -> subscriber.offer(HEARTBEAT));
+    }
+
+    /**
+     * Drop subscribers whose current send has been blocked for longer than the send timeout.
+     * Runs every send timeout, so a stall is noticed within twice the timeout.
+     */
+    @Scheduled(initialDelayString = "${lines.stream.send-timeout-ms:5000}",
+            fixedDelayString = "${lines.stream.send-timeout-ms:5000}")
+    public void evictStalled() {
+        long now = System.nanoTime();
+        for (Subscriber subscriber : subscribers) {
+            long started = subscriber.sendStartedNanos;
+            if (started != 0 && now - started > sendTimeoutNanos) {
+                subscriber.stall();
+            }
+        }
+    }
+
+    private synchronized void resizeSenders() {
+        senders.setCorePoolSize(senderThreads + Math.min(stalledSends.get(), stalledSenderThreads));
+    }
+
+    @PreDestroy
+    void shutdown() {
+        subscribers.forEach(Subscriber::close);
+        senders.shutdown();
+        try {
+            // Let the senders complete the closed emitters
+            if (!senders.awaitTermination(1, TimeUnit.SECONDS)) {
+                senders.shutdownNow();
+            }
+        } catch (InterruptedException e) {
+            senders.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * One open stream: a bounded queue of pending events, drained by at most one sender at a time.
+     */
+    private final class Subscriber {
+
+        private final AccessLine.LineType type;
+        // Shared per preference rule, so equal preferences are usually the same list
+        private final List<Long> preferredLineIds;
+        private final SseEmitter emitter;
+        private final ArrayBlockingQueue<Set<DataWithMediaType>> queue = new ArrayBlockingQueue<>(queueCapacity);
+        private final AtomicBoolean draining = new AtomicBoolean();
+        private final AtomicBoolean removed = new AtomicBoolean();
+        private final AtomicBoolean stalledSend = new AtomicBoolean();
+        // Complete the emitter once the sender is done with it
+        private volatile boolean closing;
+        // When the send in progress started, 0 while not sending
+        private volatile long sendStartedNanos;
+
+        private Subscriber(AccessLine.LineType type, List<Long> preferredLineIds, SseEmitter emitter) {
+            this.type = type;
+            this.preferredLineIds = preferredLineIds;
+            this.emitter = emitter;
+        }
+
+        void offer(Set<DataWithMediaType> message) {
+            if (removed.get()) {
+                return;
+            }
+            if (!queue.offer(message)) {
+                dropped.increment();
+                close();
+                return;
+            }
+            scheduleDrain();
+        }
+
+        private void scheduleDrain() {
+            if (draining.compareAndSet(false, true)) {
+                senders.execute(this::drain);
+            }
+        }
+
+        private void drain() {
+            try {
+                while (true) {
+                    Set<DataWithMediaType> message;
+                    while (!removed.get() && (message = queue.poll()) != null) {
+                        sendStartedNanos = System.nanoTime();
+                        try {
+                            emitter.send(message);
+                        } finally {
+                            sendStartedNanos = 0;
+                        }
+                    }
+                    if (removed.get()) {
+                        // Draining stays set: nothing is sent to a removed subscriber again
+                        if (closing) {
+                            emitter.complete();
+                        }
+                        return;
+                    }
+                    draining.set(false);
+                    // Recheck: an offer or a close may have arrived after the last poll but seen
+                    // draining still set, and the close still needs its emitter completed
+                    if ((queue.isEmpty() && !removed.get()) || !draining.compareAndSet(false, true)) {
+                        return;
+                    }
+                }
+            } catch (IOException | IllegalStateException e) {
+                // Client went away or the emitter already completed
+                remove();
+            } finally {
+                if (stalledSend.compareAndSet(true, false)) {
+                    stalledSends.decrementAndGet();
+                    resizeSenders();
+                }
+            }
+        }
+
+        /**
+         * Disconnect: the emitter is completed by a sender thread, after any send in progress.
+         */
+        void close() {
+            closing = true;
+            remove();
+            scheduleDrain();
+        }
+
+        /**
+         * The send in progress has exceeded the send timeout: drop the subscriber and stand in
+         * another sender for the thread it holds.
+         */
+        void stall() {
+            if (removed.get() || !stalledSend.compareAndSet(false, true)) {
+                return;
+            }
+            stalled.increment();
+            stalledSends.incrementAndGet();
+            resizeSenders();
+            close();
+            // The send may have returned in the meantime, before the flag was seen
+            if (sendStartedNanos == 0 && stalledSend.compareAndSet(true, false)) {
+                stalledSends.decrementAndGet();
+                resizeSenders();
+            }
+        }
+
+        void remove() {
+            if (removed.compareAndSet(false, true)) {
+                subscribers.remove(this);
+                subscriberCount.decrementAndGet();
+                queue.clear();
+            }
+        }
+    }
+}
@@ -10,5 +10,7 @@ import java.util.List;
 public interface AccessLineRepository extends JpaRepository<AccessLine, Long> {
 
     List<AccessLine> findByTypeAndActiveTrueOrderBySortOrderAsc(AccessLine.LineType type);
+
+    List<AccessLine> findByActiveTrue();
 }
 
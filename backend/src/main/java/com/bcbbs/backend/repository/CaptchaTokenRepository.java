@@ -2,13 +2,46 @@ package com.bcbbs.backend.repository;
 
 import com.bcbbs.backend.entity.CaptchaToken;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
-import java.util.Optional;
+import java.time.LocalDateTime;
 
 @Repository
 public interface CaptchaTokenRepository extends JpaRepository<CaptchaToken, String> {
 
-    Optional<CaptchaToken> findByTokenAndUsedFalse(String token);
-}
+    /**
+     * Consume a captcha in one guarded statement.
+     * The row lock taken by the UPDATE serializes concurrent attempts, so at most one of them sees an affected row.
+     *
+     * @return 1 if the captcha was valid and is now consumed, 0 otherwise
+     */
+    @Modifying
+    @Transactional
+    @Query("UPDATE CaptchaToken c SET c.used = true "
+            + "WHERE c.token = :token AND c.code = :code AND c.used = false AND c.expiresAt > :now")
+    int consume(@Param("token") String token, @Param("code") String code, @Param("now") LocalDateTime now);
+
+    /**
+     * Delete one batch of expired captchas, walking the expires_at index in order.
+     *
+     * @return number of rows deleted; less than batchSize means nothing is left
+     */
+    @Modifying
+    @Transactional
+    @Query(value = "DELETE FROM captcha_tokens WHERE expires_at < :cutoff ORDER BY expires_at LIMIT :batchSize",
+            nativeQuery = true)
+    int deleteExpiredBatch(@Param("cutoff") LocalDateTime cutoff, @Param("batchSize") int batchSize);
 
+    /**
+     * Delete one batch of already consumed captchas in primary key order.
+     */
+    @Modifying
+    @Transactional
+    @Query(value = "DELETE FROM captcha_tokens WHERE used = true ORDER BY token LIMIT :batchSize",
+            nativeQuery = true)
+    int deleteUsedBatch(@Param("batchSize") int batchSize);
+}
@@ -1,7 +1,11 @@
 package com.bcbbs.backend.repository;
 
 import com.bcbbs.backend.entity.SearchItem;
+import com.bcbbs.backend.search.SearchDocument;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.util.List;
@@ -13,5 +17,61 @@ public interface SearchItemRepository extends JpaRepository<SearchItem, Long> {
             String titleKeyword,
             String descriptionKeyword
     );
+
+    /**
+     * One keyset page of items whose title or description matches the pattern, ordered by id.
+     *
+     * @param pattern lower-case LIKE pattern using '!' as escape character
+     * @param afterId only items with a greater id
+     */
+    @Query("SELECT new com.bcbbs.backend.search.SearchDocument(s.id, s.title, s.description, s.url) " +
+            "FROM SearchItem s " +
+            "WHERE (LOWER(s.title) LIKE :pattern ESCAPE '!' OR LOWER(s.description) LIKE :pattern ESCAPE '!') " +
+            "AND s.id > :afterId ORDER BY s.id")
+    List<SearchDocument> findPageContaining(@Param("pattern") String pattern,
+                                            @Param("afterId") long afterId,
+                                            Limit limit);
+
+    /**
+     * One keyset page of FULLTEXT matches, ordered by id (requires ft_search_items_title_description).
+     *
+     * @param query boolean-mode expression, see SearchText.toFulltextQuery
+     */
+    @Query(value = "SELECT id, title, description, url FROM search_items " +
+            "WHERE MATCH(title, description) AGAINST (:query IN BOOLEAN MODE) AND id > :afterId " +
+            "ORDER BY id LIMIT :limit", nativeQuery = true)
+    List<DocumentRow> findFulltextPage(@Param("query") String query,
+                                       @Param("afterId") long afterId,
+                                       @Param("limit") int limit);
+
+    /**
+     * All items as detached documents, for building the in-memory search index.
+     */
+    @Query("SELECT new com.bcbbs.backend.search.SearchDocument(s.id, s.title, s.description, s.url) " +
+            "FROM SearchItem s ORDER BY s.id")
+    List<SearchDocument> findAllDocuments();
+
+    /**
+     * All titles, for building the autocomplete trie.
+     */
+    @Query("SELECT s.title FROM SearchItem s")
+    List<String> findAllTitles();
+
+    /**
+     * Column projection for native search queries.
+     */
+    interface DocumentRow {
+        Long getId();
+
+        String getTitle();
+
+        String getDescription();
+
+        String getUrl();
+
+        default SearchDocument toDocument() {
+            return new SearchDocument(getId(), getTitle(), getDescription(), getUrl());
+        }
+    }
 }
 
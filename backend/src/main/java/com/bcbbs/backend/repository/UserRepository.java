@@ -1,8 +1,13 @@
 package com.bcbbs.backend.repository;
 
 import com.bcbbs.backend.entity.User;
+import com.bcbbs.backend.security.TokenState;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.util.Optional;
 
@@ -16,5 +21,27 @@ public interface UserRepository extends JpaRepository<User, Long> {
     Boolean existsByUsername(String username);
     
     Boolean existsByEmail(String email);
+
+    @Query("SELECT new com.bcbbs.backend.security.TokenState(COALESCE(u.tokenVersion, 0), u.enabled, u.role) "
+            + "FROM User u WHERE u.id = :id")
+    Optional<TokenState> findTokenStateById(@Param("id") Long id);
+
+    /**
+     * Replace a password hash only if it still equals the expected one,
+     * so a concurrent password change is never overwritten by a background rehash.
+     */
+    @Modifying
+    @Transactional
+    @Query("UPDATE User u SET u.password = :newHash WHERE u.id = :id AND u.password = :oldHash")
+    int updatePasswordHash(@Param("id") Long id, @Param("oldHash") String oldHash, @Param("newHash") String newHash);
+
+    /**
+     * Atomically increment the "login without password change" counter, only while the initial password is unchanged.
+     */
+    @Modifying
+    @Transactional
+    @Query("UPDATE User u SET u.loginCountWithoutChange = COALESCE(u.loginCountWithoutChange, 0) + 1 "
+            + "WHERE u.id = :id AND (u.passwordChanged = false OR u.passwordChanged IS NULL)")
+    int incrementLoginCountWithoutChange(@Param("id") Long id);
 }
 
@@ -0,0 +1,114 @@
+package com.bcbbs.backend.search;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Streaming RFC 4180 CSV reader: comma-separated fields, optionally double-quoted, with "" as an
+ * escaped quote and line breaks allowed inside quoted fields. Reads one record at a time.
+ */
+public class CsvRecordReader {
+
+    private final Reader reader;
+    private final StringBuilder field = new StringBuilder();
+    private int pushedBack = -2;
+    private long line = 1;
+    private long recordLine;
+
+    public CsvRecordReader(Reader reader) {
+        this.reader = reader;
+    }
+
+    /**
+     * Line number where the record last returned by {@link #next()} starts, after any blank lines.
+     */
+    public long recordLine() {
+        return recordLine;
+    }
+
+    /**
+     * Next record, or null at end of input. Blank lines are skipped.
+     *
+     * @throws IllegalArgumentException if a quoted field is not terminated, or its closing quote is
+     *                                  followed by something other than a comma or the end of the line
+     */
+    public List<String> next() throws IOException {
+        int c = read();
+        while (c == '\r' || c == '\n') {
+            c = read();
+        }
+        if (c == -1) {
+            return null;
+        }
+        recordLine = line;
+        List<String> fields = new ArrayList<>();
+        while (true) {
+            field.setLength(0);
+            if (c == '"') {
+                c = readQuoted();
+            } else {
+                while (c != ',' && c != '\n' && c != '\r' && c != -1) {
+                    field.append((char) c);
+                    c = read();
+                }
+            }
+            fields.add(field.toString());
+            if (c == ',') {
+                c = read();
+                continue;
+            }
+            if (c == '\r') {
+                int following = read();
+                if (following != '\n') {
+                    unread(following);
+                }
+            }
+            return fields;
+        }
+    }
+
+    /**
+     * Read a quoted field into {@link #field}; returns the character after the closing quote.
+     */
+    private int readQuoted() throws IOException {
+        while (true) {
+            int c = read();
+            if (c == -1) {
+                throw new IllegalArgumentException("Unterminated quoted field near line " + line);
+            }
+            if (c == '"') {
+                int following = read();
+                if (following == ',' || following == '\r' || following == '\n' || following == -1) {
+                    return following;
+                }
+                if (following != '"') {
+                    throw new IllegalArgumentException("Unexpected character after closing quote on line " + line);
+                }
+            }
+            field.append((char) c);
+        }
+    }
+
+    private int read() throws IOException {
+        int c;
+        if (pushedBack != -2) {
+            c = pushedBack;
+            pushedBack = -2;
+        } else {
+            c = reader.read();
+        }
+        if (c == '\n') {
+            line++;
+        }
+        return c;
+    }
+
+    private void unread(int c) {
+        if (c == '\n') {
+            line--;
+        }
+        pushedBack = c;
+    }
+}
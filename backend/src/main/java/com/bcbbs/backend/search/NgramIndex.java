@@ -0,0 +1,376 @@
+package com.bcbbs.backend.search;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+
+/**
+ * Inverted index over character n-grams of the title and description of each document.
+ * Every code point is indexed as a unigram and every adjacent pair as a bigram, which suits Chinese
+ * text (no word boundaries) and still answers arbitrary substring queries: a query's bigrams are
+ * intersected and the few remaining candidates are checked with a substring search, so matches are
+ * the same as a case-insensitive LIKE '%q%' on either field. Callers may add title matches found
+ * elsewhere, e.g. by {@link PinyinIndex}. Matches are ranked by relevance.
+ * <p>
+ * Documents get dense ordinals in insertion order and posting lists are sorted int arrays. Updates
+ * append a fresh ordinal and leave the old one as a tombstone; {@link #compact()} drops tombstones.
+ * Not thread-safe; see {@link SearchIndex}.
+ */
+public class NgramIndex {
+
+    // Code points need 21 bits; a bigram packs two, a unigram is tagged above them
+    private static final int CODE_POINT_BITS = 21;
+    private static final long UNIGRAM_TAG = 1L << (2 * CODE_POINT_BITS);
+
+    // BM25F parameters; title occurrences count three times as much as description ones
+    private static final double K1 = 1.2;
+    private static final double B = 0.75;
+    private static final double TITLE_WEIGHT = 3.0;
+    private static final double DESCRIPTION_WEIGHT = 1.0;
+
+    // Best first: higher score, then lower id
+    private static final Comparator<Hit> RANK_ORDER = Comparator
+            .comparingDouble(Hit::score).reversed()
+            .thenComparing(hit -> hit.document().id());
+
+    private final Map<Long, IntList> postings = new HashMap<>();
+    private final Map<Long, Integer> ordinalById = new HashMap<>();
+    private Entry[] entries = new Entry[64];
+    private int ordinalCount;
+    private int deadCount;
+    // Field lengths summed over live documents, for length normalization
+    private long totalTitleLength;
+    private long totalDescriptionLength;
+
+    /**
+     * Add the document, replacing any earlier version with the same id.
+     */
+    public void put(SearchDocument document) {
+        remove(document.id());
+        int ordinal = ordinalCount++;
+        if (ordinal == entries.length) {
+            entries = Arrays.copyOf(entries, entries.length * 2);
+        }
+        Entry entry = new Entry(document, SearchText.normalize(document.title()), SearchText.normalize(document.description()));
+        entries[ordinal] = entry;
+        ordinalById.put(document.id(), ordinal);
+        totalTitleLength += entry.normalizedTitle().length();
+        totalDescriptionLength += entry.normalizedDescription().length();
+        indexField(entry.normalizedTitle(), ordinal);
+        indexField(entry.normalizedDescription(), ordinal);
+    }
+
+    /**
+     * Remove the document with this id.
+     *
+     * @return true if it was indexed
+     */
+    public boolean remove(Long id) {
+        Integer ordinal = ordinalById.remove(id);
+        if (ordinal == null) {
+            return false;
+        }
+        totalTitleLength -= entries[ordinal].normalizedTitle().length();
+        totalDescriptionLength -= entries[ordinal].normalizedDescription().length();
+        entries[ordinal] = null;
+        deadCount++;
+        return true;
+    }
+
+    /**
+     * The best {@code k} documents whose title or description contains the query, or whose id is
+     * among {@code titleMatchIds}, that rank after the given position, best first.
+     * <p>
+     * Scoring is BM25F with the query string as the single term: its occurrences in the title and
+     * in the description are weighted per field, normalized by that field's length relative to the
+     * field average, summed and saturated. A title matched only by other means (such as pinyin)
+     * counts as one title occurrence; it adds nothing when the title already contains the query.
+     * Selection keeps a heap of k hits, so it costs O(matches * log k) instead of sorting every match.
+     *
+     * @param normalizedQuery query already passed through {@link SearchText#normalize(String)}
+     * @param titleMatchIds   ids of documents whose title matches the query in another form; may be empty
+     * @param afterScore      score of the last hit of the previous page, or null for the first page
+     * @param afterId         id of the last hit of the previous page; equal scores are ordered by id
+     */
+    public List<Hit> searchTopK(String normalizedQuery, long[] titleMatchIds, Double afterScore, long afterId, int k) {
+        int[] codePoints = normalizedQuery.codePoints().toArray();
+        if (codePoints.length == 0 || k <= 0) {
+            return List.of();
+        }
+
+        int[] candidates = textCandidates(codePoints);
+        int[] extra = ordinalsOf(titleMatchIds);
+
+        // Merge both sorted candidate lists, verify text candidates and count term frequencies
+        int capacity = candidates.length + extra.length;
+        int[] matched = new int[capacity];
+        int[] titleFrequency = new int[capacity];
+        int[] descriptionFrequency = new int[capacity];
+        int matches = 0;
+        int i = 0;
+        int j = 0;
+        while (i < candidates.length || j < extra.length) {
+            boolean fromText = j == extra.length || (i < candidates.length && candidates[i] <= extra[j]);
+            boolean fromExtra = i == candidates.length || (j < extra.length && extra[j] <= candidates[i]);
+            int ordinal = fromText ? candidates[i++] : extra[j];
+            if (fromExtra) {
+                j++;
+            }
+            Entry entry = entries[ordinal];
+            if (entry == null) {
+                continue;
+            }
+            int inTitle = 0;
+            int inDescription = 0;
+            if (fromText) {
+                inTitle = occurrences(entry.normalizedTitle(), normalizedQuery);
+                inDescription = occurrences(entry.normalizedDescription(), normalizedQuery);
+            }
+            // A Latin query found in the title also shows up in its pinyin forms; count it once
+            if (fromExtra && inTitle == 0) {
+                inTitle = 1;
+            }
+            if (inTitle + inDescription > 0) {
+                matched[matches] = ordinal;
+                titleFrequency[matches] = inTitle;
+                descriptionFrequency[matches] = inDescription;
+                matches++;
+            }
+        }
+        if (matches == 0) {
+            return List.of();
+        }
+
+        int live = size();
+        double idf = Math.log(1 + (live - matches + 0.5) / (matches + 0.5));
+        double averageTitle = Math.max(1.0, (double) totalTitleLength / live);
+        double averageDescription = Math.max(1.0, (double) totalDescriptionLength / live);
+
+        // Head of the heap is the worst hit kept so far
+        PriorityQueue<Hit> heap = new PriorityQueue<>(k + 1, RANK_ORDER.reversed());
+        for (int m = 0; m < matches; m++) {
+            Entry entry = entries[matched[m]];
+            double weighted = TITLE_WEIGHT * titleFrequency[m]
+                    / (1 - B + B * entry.normalizedTitle().length() / averageTitle)
+                    + DESCRIPTION_WEIGHT * descriptionFrequency[m]
+                    / (1 - B + B * entry.normalizedDescription().length() / averageDescription);
+            double score = idf * weighted / (K1 + weighted);
+            Long id = entry.document().id();
+            if (afterScore != null && (score > afterScore || (score == afterScore && id <= afterId))) {
+                continue;
+            }
+            Hit hit = new Hit(entry.document(), score);
+            if (heap.size() < k) {
+                heap.add(hit);
+            } else if (RANK_ORDER.compare(hit, heap.peek()) < 0) {
+                heap.poll();
+                heap.add(hit);
+            }
+        }
+
+        Hit[] ranked = new Hit[heap.size()];
+        for (int r = ranked.length - 1; r >= 0; r--) {
+            ranked[r] = heap.poll();
+        }
+        return Arrays.asList(ranked);
+    }
+
+    /**
+     * Live documents, in no particular order.
+     */
+    public List<SearchDocument> documents() {
+        List<SearchDocument> documents = new ArrayList<>(size());
+        for (int i = 0; i < ordinalCount; i++) {
+            if (entries[i] != null) {
+                documents.add(entries[i].document());
+            }
+        }
+        return documents;
+    }
+
+    /**
+     * Number of live documents.
+     */
+    public int size() {
+        return ordinalById.size();
+    }
+
+    /**
+     * Number of tombstoned ordinals still referenced by posting lists.
+     */
+    public int deadCount() {
+        return deadCount;
+    }
+
+    /**
+     * New index holding the same live documents without tombstones.
+     */
+    public NgramIndex compact() {
+        NgramIndex compacted = new NgramIndex();
+        for (int i = 0; i < ordinalCount; i++) {
+            if (entries[i] != null) {
+                compacted.put(entries[i].document());
+            }
+        }
+        return compacted;
+    }
+
+    /**
+     * Sorted ordinals holding every n-gram of the query; still to be verified by substring search.
+     */
+    private int[] textCandidates(int[] codePoints) {
+        IntList[] lists = postingsFor(codePoints);
+        if (lists == null) {
+            return new int[0];
+        }
+        Arrays.sort(lists, Comparator.comparingInt(list -> list.size));
+
+        // Intersect starting from the rarest gram so the candidate set only shrinks
+        int[] candidates = Arrays.copyOf(lists[0].values, lists[0].size);
+        int count = candidates.length;
+        for (int i = 1; i < lists.length && count > 0; i++) {
+            count = intersect(candidates, count, lists[i]);
+        }
+        return count == candidates.length ? candidates : Arrays.copyOf(candidates, count);
+    }
+
+    /**
+     * Sorted ordinals of the ids that are indexed.
+     */
+    private int[] ordinalsOf(long[] ids) {
+        int[] ordinals = new int[ids.length];
+        int count = 0;
+        for (long id : ids) {
+            Integer ordinal = ordinalById.get(id);
+            if (ordinal != null) {
+                ordinals[count++] = ordinal;
+            }
+        }
+        ordinals = Arrays.copyOf(ordinals, count);
+        Arrays.sort(ordinals);
+        return ordinals;
+    }
+
+    private IntList[] postingsFor(int[] codePoints) {
+        if (codePoints.length == 1) {
+            IntList list = postings.get(unigramKey(codePoints[0]));
+            return list == null ? null : new IntList[]{list};
+        }
+        long[] keys = new long[codePoints.length - 1];
+        for (int i = 1; i < codePoints.length; i++) {
+            keys[i - 1] = bigramKey(codePoints[i - 1], codePoints[i]);
+        }
+        long[] distinct = Arrays.stream(keys).distinct().toArray();
+        IntList[] lists = new IntList[distinct.length];
+        for (int i = 0; i < distinct.length; i++) {
+            lists[i] = postings.get(distinct[i]);
+            if (lists[i] == null) {
+                return null;
+            }
+        }
+        return lists;
+    }
+
+    private void indexField(String text, int ordinal) {
+        int previous = -1;
+        for (int i = 0; i < text.length(); ) {
+            int codePoint = text.codePointAt(i);
+            i += Character.charCount(codePoint);
+            addPosting(unigramKey(codePoint), ordinal);
+            if (previous >= 0) {
+                addPosting(bigramKey(previous, codePoint), ordinal);
+            }
+            previous = codePoint;
+        }
+    }
+
+    private void addPosting(long key, int ordinal) {
+        postings.computeIfAbsent(key, k -> new IntList()).appendIfGreater(ordinal);
+    }
+
+    /**
+     * Keep the entries of {@code candidates[0..count)} that also occur in {@code list}, in place.
+     * Uses galloping search in the longer list, so the cost follows the shorter one.
+     */
+    private static int intersect(int[] candidates, int count, IntList list) {
+        int[] values = list.values;
+        int size = list.size;
+        int kept = 0;
+        int position = 0;
+        for (int i = 0; i < count && position < size; i++) {
+            int target = candidates[i];
+            int step = 1;
+            int high = position;
+            while (high < size && values[high] < target) {
+                position = high + 1;
+                high += step;
+                step <<= 1;
+            }
+            int found = Arrays.binarySearch(values, position, Math.min(high + 1, size), target);
+            if (found >= 0) {
+                candidates[kept++] = target;
+                position = found + 1;
+            } else {
+                position = -found - 1;
+            }
+        }
+        return kept;
+    }
+
+    /**
+     * Non-overlapping occurrences of the query in the text.
+     */
+    private static int occurrences(String text, String query) {
+        int count = 0;
+        for (int from = text.indexOf(query); from >= 0; from = text.indexOf(query, from + query.length())) {
+            count++;
+        }
+        return count;
+    }
+
+    private static long unigramKey(int codePoint) {
+        return UNIGRAM_TAG | codePoint;
+    }
+
+    private static long bigramKey(int first, int second) {
+        return ((long) first << CODE_POINT_BITS) | second;
+    }
+
+    /**
+     * Indexed document with its normalized fields.
+     */
+    public record Entry(SearchDocument document, String normalizedTitle, String normalizedDescription) {
+    }
+
+    /**
+     * Matching document with its relevance score.
+     */
+    public record Hit(SearchDocument document, double score) {
+    }
+
+    /**
+     * Growable sorted posting list of ordinals.
+     */
+    private static final class IntList {
+
+        private int[] values = new int[4];
+        private int size;
+
+        /**
+         * Ordinals arrive in increasing order; skip repeats of the last one.
+         */
+        void appendIfGreater(int value) {
+            if (size > 0 && values[size - 1] >= value) {
+                return;
+            }
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size * 2);
+            }
+            values[size++] = value;
+        }
+    }
+}
@@ -0,0 +1,54 @@
+package com.bcbbs.backend.search;
+
+import net.sourceforge.pinyin4j.PinyinHelper;
+import net.sourceforge.pinyin4j.format.HanyuPinyinCaseType;
+import net.sourceforge.pinyin4j.format.HanyuPinyinOutputFormat;
+import net.sourceforge.pinyin4j.format.HanyuPinyinToneType;
+import net.sourceforge.pinyin4j.format.HanyuPinyinVCharType;
+import net.sourceforge.pinyin4j.format.exception.BadHanyuPinyinOutputFormatCombination;
+
+/**
+ * Hanzi to toneless lower-case pinyin, as typed on a keyboard ("ü" becomes "v").
+ * Polyphonic characters use their first (most common) reading. Readings are memoized per char,
+ * since pinyin4j looks each one up through a string-keyed table.
+ */
+public final class Pinyin {
+
+    private static final HanyuPinyinOutputFormat FORMAT = new HanyuPinyinOutputFormat();
+    private static final String NO_READING = "";
+    private static final String[] READINGS = new String[Character.MAX_VALUE + 1];
+
+    static {
+        FORMAT.setCaseType(HanyuPinyinCaseType.LOWERCASE);
+        FORMAT.setToneType(HanyuPinyinToneType.WITHOUT_TONE);
+        FORMAT.setVCharType(HanyuPinyinVCharType.WITH_V);
+    }
+
+    private Pinyin() {
+    }
+
+    /**
+     * Pinyin of the character, or null if it is not a hanzi with a known reading.
+     */
+    public static String of(char c) {
+        String reading = READINGS[c];
+        if (reading == null) {
+            reading = lookup(c);
+            // Racing writers store equal values
+            READINGS[c] = reading;
+        }
+        return reading.isEmpty() ? null : reading;
+    }
+
+    private static String lookup(char c) {
+        if (Character.UnicodeScript.of(c) != Character.UnicodeScript.HAN) {
+            return NO_READING;
+        }
+        try {
+            String[] readings = PinyinHelper.toHanyuPinyinStringArray(c, FORMAT);
+            return readings == null || readings.length == 0 ? NO_READING : readings[0];
+        } catch (BadHanyuPinyinOutputFormatCombination e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
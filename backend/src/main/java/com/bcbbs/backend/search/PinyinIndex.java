@@ -0,0 +1,352 @@
+package com.bcbbs.backend.search;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Immutable index that matches pinyin queries against Chinese titles, e.g. "beijing", "jingda" or
+ * "bjdx" against "北京大学".
+ * <p>
+ * Every title containing hanzi is transliterated once, at build time, into two forms: full pinyin
+ * ("beijingdaxue") and initials ("bjdx"). Latin letters and digits are kept as they are. A query
+ * matches when it is a prefix of either form read from the start of some character, so it may begin
+ * at any syllable but not inside one. Each form is kept as a suffix array over those syllable starts:
+ * a lookup is a binary search for the query followed by a scan of the matching range, with no
+ * transliteration at query time.
+ */
+public class PinyinIndex {
+
+    public static final PinyinIndex EMPTY = build(List.of());
+
+    // Below this range size the suffix sort switches to insertion sort
+    private static final int INSERTION_SORT_THRESHOLD = 16;
+    // Forms hold only the terminator, digits and lower-case letters: 37 symbols
+    private static final int SYMBOL_BITS = 6;
+    private static final long SYMBOL_MASK = (1L << SYMBOL_BITS) - 1;
+
+    private final long[] ids;
+    private final Form full;
+    private final Form initials;
+
+    private PinyinIndex(long[] ids, Form full, Form initials) {
+        this.ids = ids;
+        this.full = full;
+        this.initials = initials;
+    }
+
+    /**
+     * Build the index over the titles of the documents; documents without hanzi are skipped, since
+     * their text already matches directly.
+     */
+    public static PinyinIndex build(Collection<SearchDocument> documents) {
+        long[] ids = new long[documents.size()];
+        FormBuilder full = new FormBuilder();
+        FormBuilder initials = new FormBuilder();
+        int count = 0;
+        for (SearchDocument document : documents) {
+            Transliteration transliteration = transliterate(document.title());
+            if (transliteration == null) {
+                continue;
+            }
+            full.add(transliteration.full(), transliteration.fullStarts(), count);
+            initials.add(transliteration.initials(), transliteration.initialStarts(), count);
+            ids[count++] = document.id();
+        }
+        return new PinyinIndex(Arrays.copyOf(ids, count), full.build(), initials.build());
+    }
+
+    /**
+     * Whether the normalized query could be pinyin: ASCII letters, possibly with digits and spaces.
+     */
+    public static boolean isPinyinQuery(String normalizedQuery) {
+        boolean letter = false;
+        for (int i = 0; i < normalizedQuery.length(); i++) {
+            char c = normalizedQuery.charAt(i);
+            if (c >= 'a' && c <= 'z') {
+                letter = true;
+            } else if (!(c >= '0' && c <= '9') && c != ' ') {
+                return false;
+            }
+        }
+        return letter;
+    }
+
+    /**
+     * Ids of the documents whose title matches the query as pinyin, in index order, or an empty
+     * array if the query is not pinyin.
+     *
+     * @param normalizedQuery query already passed through {@link SearchText#normalize(String)}
+     */
+    public long[] match(String normalizedQuery) {
+        if (ids.length == 0 || !isPinyinQuery(normalizedQuery)) {
+            return new long[0];
+        }
+        // Syllables are often typed with spaces between them
+        char[] query = normalizedQuery.replace(" ", "").toCharArray();
+        BitSet matched = new BitSet(ids.length);
+        full.collect(query, matched);
+        initials.collect(query, matched);
+
+        long[] result = new long[matched.cardinality()];
+        int i = 0;
+        for (int document = matched.nextSetBit(0); document >= 0; document = matched.nextSetBit(document + 1)) {
+            result[i++] = ids[document];
+        }
+        return result;
+    }
+
+    /**
+     * Number of indexed titles.
+     */
+    public int size() {
+        return ids.length;
+    }
+
+    /**
+     * Pinyin forms of a title with the offsets where each character's syllable starts, or null if
+     * the title has no hanzi. Exposed for PinyinSearchBenchmark in the tests.
+     */
+    static Transliteration transliterate(String title) {
+        if (title == null) {
+            return null;
+        }
+        String normalized = SearchText.normalize(title);
+        StringBuilder full = new StringBuilder(normalized.length() * 4);
+        StringBuilder initials = new StringBuilder(normalized.length());
+        int[] fullStarts = new int[normalized.length()];
+        int[] initialStarts = new int[normalized.length()];
+        int starts = 0;
+        boolean hanzi = false;
+        boolean inLatinRun = false;
+        for (int i = 0; i < normalized.length(); i++) {
+            char c = normalized.charAt(i);
+            String reading = Pinyin.of(c);
+            if (reading != null) {
+                fullStarts[starts] = full.length();
+                initialStarts[starts++] = initials.length();
+                full.append(reading);
+                initials.append(reading.charAt(0));
+                hanzi = true;
+                inLatinRun = false;
+            } else if ((c >= 'a' && c <= 'z') || (c >= '0' && c <= '9')) {
+                // A latin word is one unit: matchable from its start only
+                if (!inLatinRun) {
+                    fullStarts[starts] = full.length();
+                    initialStarts[starts++] = initials.length();
+                }
+                full.append(c);
+                initials.append(c);
+                inLatinRun = true;
+            } else {
+                inLatinRun = false;
+            }
+        }
+        if (!hanzi) {
+            return null;
+        }
+        return new Transliteration(full.toString(), initials.toString(),
+                Arrays.copyOf(fullStarts, starts), Arrays.copyOf(initialStarts, starts));
+    }
+
+    record Transliteration(String full, String initials, int[] fullStarts, int[] initialStarts) {
+    }
+
+    /**
+     * Suffix array over one form of all titles. Titles are concatenated into one char array, each
+     * followed by a 0 terminator so no suffix compares past its own title.
+     */
+    private static final class Form {
+
+        private final char[] text;
+        // Suffix start offsets into text, sorted by the suffix they start
+        private final int[] suffixes;
+        // Document index of each entry of suffixes
+        private final int[] documents;
+
+        private Form(char[] text, int[] suffixes, int[] documents) {
+            this.text = text;
+            this.suffixes = suffixes;
+            this.documents = documents;
+        }
+
+        void collect(char[] query, BitSet matched) {
+            // First suffix not ordered before the query; all suffixes it prefixes follow contiguously
+            int low = 0;
+            int high = suffixes.length;
+            while (low < high) {
+                int mid = (low + high) >>> 1;
+                if (compare(suffixes[mid], query) < 0) {
+                    low = mid + 1;
+                } else {
+                    high = mid;
+                }
+            }
+            for (int i = low; i < suffixes.length && compare(suffixes[i], query) == 0; i++) {
+                matched.set(documents[i]);
+            }
+        }
+
+        /**
+         * Negative, zero or positive as the suffix orders before, starts with, or orders after the query.
+         */
+        private int compare(int suffix, char[] query) {
+            for (int i = 0; i < query.length; i++) {
+                int difference = text[suffix + i] - query[i];
+                if (difference != 0) {
+                    return difference;
+                }
+            }
+            return 0;
+        }
+    }
+
+    private static final class FormBuilder {
+
+        private final StringBuilder text = new StringBuilder();
+        private int[] suffixes = new int[64];
+        private int[] suffixDocuments = new int[64];
+        private int size;
+
+        void add(String form, int[] starts, int document) {
+            int base = text.length();
+            text.append(form).append('\0');
+            if (size + starts.length > suffixes.length) {
+                int capacity = Math.max(size + starts.length, suffixes.length * 2);
+                suffixes = Arrays.copyOf(suffixes, capacity);
+                suffixDocuments = Arrays.copyOf(suffixDocuments, capacity);
+            }
+            for (int start : starts) {
+                suffixes[size] = base + start;
+                suffixDocuments[size++] = document;
+            }
+        }
+
+        Form build() {
+            char[] chars = new char[text.length()];
+            text.getChars(0, chars.length, chars, 0);
+
+            // Sort on the first chars of each suffix packed into a long, with the suffix's slot in
+            // the low bits. This orders most suffixes with sequential primitive sorting; only groups
+            // sharing the whole packed prefix are refined by comparing the text.
+            int slotBits = Math.max(1, 32 - Integer.numberOfLeadingZeros(size));
+            int prefixChars = (Long.SIZE - 1 - slotBits) / SYMBOL_BITS;
+            long[] keys = new long[size];
+            for (int i = 0; i < size; i++) {
+                long prefix = 0;
+                int offset = suffixes[i];
+                boolean ended = false;
+                for (int d = 0; d < prefixChars; d++) {
+                    int symbol = ended ? 0 : symbol(chars[offset + d]);
+                    ended = symbol == 0;
+                    prefix = (prefix << SYMBOL_BITS) | symbol;
+                }
+                keys[i] = (prefix << slotBits) | i;
+            }
+            Arrays.sort(keys);
+
+            long slotMask = (1L << slotBits) - 1;
+            int[] sorted = new int[size];
+            int[] documents = new int[size];
+            for (int i = 0; i < size; i++) {
+                int slot = (int) (keys[i] & slotMask);
+                sorted[i] = suffixes[slot];
+                documents[i] = suffixDocuments[slot];
+            }
+            for (int low = 0; low < size; ) {
+                long prefix = keys[low] >>> slotBits;
+                int high = low + 1;
+                while (high < size && keys[high] >>> slotBits == prefix) {
+                    high++;
+                }
+                // A prefix ending in the terminator means the suffixes are equal
+                if (high - low > 1 && (prefix & SYMBOL_MASK) != 0) {
+                    sort(chars, sorted, documents, low, high, prefixChars);
+                }
+                low = high;
+            }
+            return new Form(chars, sorted, documents);
+        }
+
+        /**
+         * Order-preserving 6-bit code of a form char: the terminator, digits, then letters.
+         */
+        private static int symbol(char c) {
+            if (c == '\0') {
+                return 0;
+            }
+            return c <= '9' ? c - '0' + 1 : c - 'a' + 11;
+        }
+
+        /**
+         * Three-way radix quicksort of the suffixes in {@code a[low..high)}, which share their
+         * first {@code depth} chars; {@code b} is permuted along with them.
+         */
+        private static void sort(char[] text, int[] a, int[] b, int low, int high, int depth) {
+            while (high - low > 1) {
+                if (high - low < INSERTION_SORT_THRESHOLD) {
+                    insertionSort(text, a, b, low, high, depth);
+                    return;
+                }
+                char pivot = text[a[(low + high) >>> 1] + depth];
+                int lessEnd = low;
+                int greaterStart = high - 1;
+                int i = low;
+                while (i <= greaterStart) {
+                    char c = text[a[i] + depth];
+                    if (c < pivot) {
+                        swap(a, b, lessEnd++, i++);
+                    } else if (c > pivot) {
+                        swap(a, b, i, greaterStart--);
+                    } else {
+                        i++;
+                    }
+                }
+                sort(text, a, b, low, lessEnd, depth);
+                if (pivot != '\0') {
+                    // Suffixes equal up to their terminators need no further ordering
+                    sort(text, a, b, lessEnd, greaterStart + 1, depth + 1);
+                }
+                low = greaterStart + 1;
+            }
+        }
+
+        private static void insertionSort(char[] text, int[] a, int[] b, int low, int high, int depth) {
+            for (int i = low + 1; i < high; i++) {
+                int value = a[i];
+                int companion = b[i];
+                int j = i;
+                while (j > low && compareSuffixes(text, a[j - 1], value, depth) > 0) {
+                    a[j] = a[j - 1];
+                    b[j] = b[j - 1];
+                    j--;
+                }
+                a[j] = value;
+                b[j] = companion;
+            }
+        }
+
+        private static int compareSuffixes(char[] text, int first, int second, int depth) {
+            for (int i = depth; ; i++) {
+                char a = text[first + i];
+                char b = text[second + i];
+                if (a != b) {
+                    return a - b;
+                }
+                if (a == '\0') {
+                    return 0;
+                }
+            }
+        }
+
+        private static void swap(int[] a, int[] b, int i, int j) {
+            int t = a[i];
+            a[i] = a[j];
+            a[j] = t;
+            t = b[i];
+            b[i] = b[j];
+            b[j] = t;
+        }
+    }
+}
@@ -0,0 +1,65 @@
+package com.bcbbs.backend.search;
+
+import java.nio.ByteBuffer;
+import java.util.Base64;
+
+/**
+ * Keyset position in a search result list: the next page starts after the hit with this id and,
+ * for relevance-ranked results, this score. Results are ordered by descending score then ascending
+ * id, or by id alone when {@code afterScore} is null.
+ * Encoded as an opaque base64url string so clients cannot depend on its layout.
+ */
+public record SearchCursor(Double afterScore, long afterId) {
+
+    public static final SearchCursor FIRST = new SearchCursor(null, 0L);
+
+    private static final byte BY_ID = 1;
+    private static final byte BY_SCORE = 2;
+
+    /**
+     * Position after the given hit.
+     */
+    public static SearchCursor after(SearchHit hit) {
+        return new SearchCursor(hit.score(), hit.document().id());
+    }
+
+    public String encode() {
+        ByteBuffer buffer;
+        if (afterScore == null) {
+            buffer = ByteBuffer.allocate(1 + Long.BYTES);
+            buffer.put(BY_ID);
+        } else {
+            buffer = ByteBuffer.allocate(1 + Double.BYTES + Long.BYTES);
+            buffer.put(BY_SCORE);
+            buffer.putDouble(afterScore);
+        }
+        buffer.putLong(afterId);
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(buffer.array());
+    }
+
+    /**
+     * Parse a cursor produced by {@link #encode()}; null or blank means the first page.
+     *
+     * @throws IllegalArgumentException if the cursor is malformed
+     */
+    public static SearchCursor decode(String cursor) {
+        if (cursor == null || cursor.isBlank()) {
+            return FIRST;
+        }
+        ByteBuffer buffer = ByteBuffer.wrap(Base64.getUrlDecoder().decode(cursor.trim()));
+        Double afterScore = null;
+        if (buffer.remaining() == 1 + Double.BYTES + Long.BYTES && buffer.get() == BY_SCORE) {
+            afterScore = buffer.getDouble();
+            if (!Double.isFinite(afterScore)) {
+                throw new IllegalArgumentException("Invalid search cursor");
+            }
+        } else if (buffer.rewind().remaining() != 1 + Long.BYTES || buffer.get() != BY_ID) {
+            throw new IllegalArgumentException("Invalid search cursor");
+        }
+        long afterId = buffer.getLong();
+        if (afterId < 0) {
+            throw new IllegalArgumentException("Invalid search cursor");
+        }
+        return new SearchCursor(afterScore, afterId);
+    }
+}
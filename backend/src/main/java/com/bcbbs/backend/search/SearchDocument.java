@@ -0,0 +1,7 @@
+package com.bcbbs.backend.search;
+
+/**
+ * Searchable fields of one search item, detached from the JPA entity.
+ */
+public record SearchDocument(Long id, String title, String description, String url) {
+}
@@ -0,0 +1,51 @@
+package com.bcbbs.backend.search;
+
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.DependsOn;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.init.ResourceDatabasePopulator;
+import org.springframework.stereotype.Component;
+
+import javax.sql.DataSource;
+
+/**
+ * Creates the FULLTEXT index on search_items when search.mode=fulltext and it does not exist yet.
+ * Runs after Hibernate has updated the schema, so the table is present.
+ */
+@Component
+@DependsOn("entityManagerFactory")
+@ConditionalOnProperty(name = "search.mode", havingValue = "fulltext")
+public class SearchFulltextSchema {
+
+    private static final Logger logger = LoggerFactory.getLogger(SearchFulltextSchema.class);
+
+    public static final String INDEX_NAME = "ft_search_items_title_description";
+    private static final String SCRIPT = "db/search_items_fulltext.sql";
+
+    private final DataSource dataSource;
+    private final JdbcTemplate jdbcTemplate;
+
+    public SearchFulltextSchema(DataSource dataSource, JdbcTemplate jdbcTemplate) {
+        this.dataSource = dataSource;
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    @PostConstruct
+    public void ensureIndex() {
+        Integer existing = jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM information_schema.statistics " +
+                        "WHERE table_schema = DATABASE() AND table_name = 'search_items' AND index_name = ?",
+                Integer.class, INDEX_NAME);
+        if (existing != null && existing > 0) {
+            return;
+        }
+        logger.info("Creating FULLTEXT index {} on search_items", INDEX_NAME);
+        long start = System.currentTimeMillis();
+        new ResourceDatabasePopulator(new ClassPathResource(SCRIPT)).execute(dataSource);
+        logger.info("FULLTEXT index {} created in {}ms", INDEX_NAME, System.currentTimeMillis() - start);
+    }
+}
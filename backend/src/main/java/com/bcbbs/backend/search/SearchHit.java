@@ -0,0 +1,10 @@
+package com.bcbbs.backend.search;
+
+/**
+ * One search result.
+ *
+ * @param document matched item
+ * @param score    relevance score, or null when results are ordered by id
+ */
+public record SearchHit(SearchDocument document, Double score) {
+}
@@ -0,0 +1,249 @@
+package com.bcbbs.backend.search;
+
+import com.bcbbs.backend.repository.SearchItemRepository;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.annotation.Order;
+import org.springframework.scheduling.TaskScheduler;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Process-wide search index over search_items.
+ * Loaded from the database once the application is ready, updated incrementally from
+ * {@link SearchItemChangedEvent}s after commit, and rebuilt periodically to pick up rows changed
+ * outside the application. Only active with search.mode=index (the default).
+ * <p>
+ * Titles are also matched as pinyin through a {@link PinyinIndex}. It cannot be updated in place,
+ * so it is rebuilt from the current documents after changes settle for search.pinyin.debounce-ms.
+ */
+@Component
+@ConditionalOnProperty(name = "search.mode", havingValue = "index", matchIfMissing = true)
+public class SearchIndex {
+
+    private static final Logger logger = LoggerFactory.getLogger(SearchIndex.class);
+
+    // Compact once tombstones outnumber live documents (and are not trivially few)
+    private static final int MIN_DEAD_FOR_COMPACTION = 1024;
+
+    private final SearchItemRepository searchItemRepository;
+    private final SearchResultCache resultCache;
+    private final TaskScheduler taskScheduler;
+    private final Timer rebuildTimer;
+    private final Timer pinyinRebuildTimer;
+    private final long pinyinDebounceMillis;
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final ReentrantLock rebuildLock = new ReentrantLock();
+
+    // Guarded by lock
+    private NgramIndex index;
+    private List<SearchItemChangedEvent> pendingDuringRebuild;
+
+    private volatile PinyinIndex pinyinIndex = PinyinIndex.EMPTY;
+    private final AtomicBoolean pinyinRebuildScheduled = new AtomicBoolean();
+
+    public SearchIndex(SearchItemRepository searchItemRepository,
+                       SearchResultCache resultCache,
+                       TaskScheduler taskScheduler,
+                       MeterRegistry meterRegistry,
+                       @Value("${search.pinyin.debounce-ms:2000}") long pinyinDebounceMillis) {
+        this.searchItemRepository = searchItemRepository;
+        this.resultCache = resultCache;
+        this.taskScheduler = taskScheduler;
+        this.pinyinDebounceMillis = pinyinDebounceMillis;
+        this.rebuildTimer = Timer.builder("search.index.rebuild")
+                .description("Time to rebuild the search index from the database")
+                .register(meterRegistry);
+        this.pinyinRebuildTimer = Timer.builder("search.pinyin.rebuild")
+                .description("Time to rebuild the pinyin title index")
+                .register(meterRegistry);
+        Gauge.builder("search.index.documents", this, SearchIndex::size)
+                .description("Documents in the search index")
+                .register(meterRegistry);
+        Gauge.builder("search.pinyin.titles", this, index -> index.pinyinIndex.size())
+                .description("Titles in the pinyin index")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Whether the initial load has completed.
+     */
+    public boolean isReady() {
+        lock.readLock().lock();
+        try {
+            return index != null;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * One page of documents whose title or description contains the keyword, or whose title matches
+     * it as pinyin, most relevant first: at most {@code limit} hits ranking after the cursor.
+     */
+    public List<SearchHit> search(String keyword, SearchCursor after, int limit) {
+        String query = SearchText.normalize(keyword);
+        long[] pinyinMatches = pinyinIndex.match(query);
+        lock.readLock().lock();
+        try {
+            if (index == null) {
+                throw new IllegalStateException("Search index not loaded");
+            }
+            return index.searchTopK(query, pinyinMatches, after.afterScore(), after.afterId(), limit).stream()
+                    .map(hit -> new SearchHit(hit.document(), hit.score()))
+                    .toList();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return index == null ? 0 : index.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void loadOnStartup() {
+        rebuild();
+    }
+
+    /**
+     * Rebuild the whole index from the database and swap it in.
+     * Changes committed while the rebuild runs are replayed onto the new index before the swap.
+     */
+    @Scheduled(initialDelayString = "${search.index.rebuild-interval-ms:300000}",
+            fixedDelayString = "${search.index.rebuild-interval-ms:300000}")
+    public void rebuild() {
+        if (!rebuildLock.tryLock()) {
+            return;
+        }
+        try {
+            lock.writeLock().lock();
+            try {
+                pendingDuringRebuild = new ArrayList<>();
+            } finally {
+                lock.writeLock().unlock();
+            }
+
+            NgramIndex rebuilt = new NgramIndex();
+            try {
+                rebuildTimer.record(() -> searchItemRepository.findAllDocuments().forEach(rebuilt::put));
+            } catch (RuntimeException e) {
+                logger.warn("Search index rebuild failed - Error: {}", e.getMessage());
+                lock.writeLock().lock();
+                try {
+                    pendingDuringRebuild = null;
+                } finally {
+                    lock.writeLock().unlock();
+                }
+                return;
+            }
+
+            lock.writeLock().lock();
+            try {
+                // Replaying is idempotent, so events already visible to the load do no harm
+                pendingDuringRebuild.forEach(event -> apply(rebuilt, event));
+                pendingDuringRebuild = null;
+                index = rebuilt;
+            } finally {
+                lock.writeLock().unlock();
+            }
+            logger.info("Search index rebuilt - documents: {}", rebuilt.size());
+        } finally {
+            rebuildLock.unlock();
+        }
+        rebuildPinyin();
+    }
+
+    /**
+     * Rebuild the pinyin index from the documents currently indexed and swap it in.
+     * Also clears the result cache, since the new index may reflect rows changed outside the
+     * application and pinyin matches lag behind the change events.
+     */
+    public synchronized void rebuildPinyin() {
+        List<SearchDocument> documents;
+        lock.readLock().lock();
+        try {
+            if (index == null) {
+                return;
+            }
+            documents = index.documents();
+        } finally {
+            lock.readLock().unlock();
+        }
+        PinyinIndex rebuilt = pinyinRebuildTimer.record(() -> PinyinIndex.build(documents));
+        pinyinIndex = rebuilt;
+        resultCache.invalidateAll();
+        logger.debug("Pinyin index rebuilt - titles: {}", rebuilt.size());
+    }
+
+    @Order(0)
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onSearchItemChanged(SearchItemChangedEvent event) {
+        lock.writeLock().lock();
+        try {
+            if (pendingDuringRebuild != null) {
+                pendingDuringRebuild.add(event);
+            }
+            if (index == null) {
+                return;
+            }
+            apply(index, event);
+            if (index.deadCount() > MIN_DEAD_FOR_COMPACTION && index.deadCount() > index.size()) {
+                index = index.compact();
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+        schedulePinyinRebuild();
+    }
+
+    /**
+     * Coalesce bursts of changes into one pinyin rebuild after the debounce delay.
+     */
+    private void schedulePinyinRebuild() {
+        if (pinyinRebuildScheduled.compareAndSet(false, true)) {
+            taskScheduler.schedule(() -> {
+                pinyinRebuildScheduled.set(false);
+                rebuildPinyin();
+            }, Instant.now().plusMillis(pinyinDebounceMillis));
+        }
+    }
+
+    /**
+     * Bulk imports bypass the entity listener; reload everything in the background.
+     */
+    @EventListener
+    public void onSearchItemsImported(SearchItemsImportedEvent event) {
+        taskScheduler.schedule(this::rebuild, Instant.now());
+    }
+
+    private static void apply(NgramIndex target, SearchItemChangedEvent event) {
+        if (event.isDeleted()) {
+            target.remove(event.id());
+        } else {
+            target.put(event.document());
+        }
+    }
+}
@@ -0,0 +1,14 @@
+package com.bcbbs.backend.search;
+
+/**
+ * Published when a search item is created, updated or deleted.
+ *
+ * @param id       search item id
+ * @param document the saved fields, or null when the item was deleted
+ */
+public record SearchItemChangedEvent(Long id, SearchDocument document) {
+
+    public boolean isDeleted() {
+        return document == null;
+    }
+}
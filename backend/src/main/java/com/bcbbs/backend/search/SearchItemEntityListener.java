@@ -0,0 +1,34 @@
+package com.bcbbs.backend.search;
+
+import com.bcbbs.backend.entity.SearchItem;
+import jakarta.persistence.PostPersist;
+import jakarta.persistence.PostRemove;
+import jakarta.persistence.PostUpdate;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Component;
+
+/**
+ * JPA listener on {@link SearchItem} that turns entity writes into {@link SearchItemChangedEvent}s.
+ * Hibernate obtains it from the Spring context, so listeners of the event can react after commit.
+ */
+@Component
+public class SearchItemEntityListener {
+
+    private final ApplicationEventPublisher eventPublisher;
+
+    public SearchItemEntityListener(ApplicationEventPublisher eventPublisher) {
+        this.eventPublisher = eventPublisher;
+    }
+
+    @PostPersist
+    @PostUpdate
+    public void onSaved(SearchItem item) {
+        SearchDocument document = new SearchDocument(item.getId(), item.getTitle(), item.getDescription(), item.getUrl());
+        eventPublisher.publishEvent(new SearchItemChangedEvent(item.getId(), document));
+    }
+
+    @PostRemove
+    public void onRemoved(SearchItem item) {
+        eventPublisher.publishEvent(new SearchItemChangedEvent(item.getId(), null));
+    }
+}
@@ -0,0 +1,248 @@
+package com.bcbbs.backend.search;
+
+import com.bcbbs.backend.dto.SearchImportResponse;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Bulk import of search items from NDJSON or CSV streams.
+ * Input is parsed record by record and written with JDBC batch inserts (one multi-row INSERT per
+ * batch with rewriteBatchedStatements), each batch committed on its own, so memory stays flat and
+ * a failure keeps the batches already written. Invalid records are skipped and reported.
+ */
+@Service
+public class SearchItemImporter {
+
+    private static final Logger logger = LoggerFactory.getLogger(SearchItemImporter.class);
+
+    private static final String INSERT_SQL =
+            "INSERT INTO search_items (title, description, url, created_at, updated_at) VALUES (?, ?, ?, ?, ?)";
+    private static final int MAX_REPORTED_ERRORS = 20;
+
+    // Column limits from SearchItem
+    private static final int MAX_TITLE = 200;
+    private static final int MAX_DESCRIPTION = 1000;
+    private static final int MAX_URL = 500;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final ObjectMapper objectMapper;
+    private final ApplicationEventPublisher eventPublisher;
+    private final int batchSize;
+
+    private final Counter importedRows;
+    private final Counter rejectedRows;
+    private final Timer importTimer;
+
+    public SearchItemImporter(JdbcTemplate jdbcTemplate,
+                              ObjectMapper objectMapper,
+                              ApplicationEventPublisher eventPublisher,
+                              MeterRegistry meterRegistry,
+                              @Value("${search.import.batch-size:1000}") int batchSize) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.objectMapper = objectMapper;
+        this.eventPublisher = eventPublisher;
+        this.batchSize = batchSize;
+        this.importedRows = Counter.builder("search.import.rows")
+                .description("Search items processed by bulk import")
+                .tag("outcome", "imported")
+                .register(meterRegistry);
+        this.rejectedRows = Counter.builder("search.import.rows")
+                .description("Search items processed by bulk import")
+                .tag("outcome", "rejected")
+                .register(meterRegistry);
+        this.importTimer = Timer.builder("search.import.duration")
+                .description("Duration of one bulk import")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Import one JSON object per line: {"title": ..., "description": ..., "url": ...}.
+     */
+    public SearchImportResponse importNdjson(InputStream input) throws IOException {
+        BufferedReader reader = new BufferedReader(new InputStreamReader(input, StandardCharsets.UTF_8));
+        Batch batch = new Batch();
+        try {
+            long lineNumber = 0;
+            String line;
+            while ((line = reader.readLine()) != null) {
+                lineNumber++;
+                if (line.isBlank()) {
+                    continue;
+                }
+                JsonNode node;
+                try {
+                    node = objectMapper.readTree(line);
+                } catch (IOException e) {
+                    batch.reject(lineNumber, "invalid JSON");
+                    continue;
+                }
+                batch.add(lineNumber, text(node, "title"), text(node, "description"), text(node, "url"));
+            }
+            batch.flush();
+        } finally {
+            batch.complete();
+        }
+        return batch.toResponse();
+    }
+
+    /**
+     * Import CSV with a header row naming the columns title, url and optionally description.
+     * A malformed record ends the import: it is reported as rejected, and the rows before it stay imported.
+     *
+     * @throws IllegalArgumentException if the header lacks a required column
+     */
+    public SearchImportResponse importCsv(InputStream input) throws IOException {
+        CsvRecordReader reader = new CsvRecordReader(
+                new BufferedReader(new InputStreamReader(input, StandardCharsets.UTF_8)));
+        List<String> header = reader.next();
+        if (header == null) {
+            throw new IllegalArgumentException("CSV header is missing");
+        }
+        int titleColumn = -1;
+        int descriptionColumn = -1;
+        int urlColumn = -1;
+        for (int i = 0; i < header.size(); i++) {
+            switch (header.get(i).trim().toLowerCase(Locale.ROOT)) {
+                case "title" -> titleColumn = i;
+                case "description" -> descriptionColumn = i;
+                case "url" -> urlColumn = i;
+                default -> {
+                    // Extra columns are ignored
+                }
+            }
+        }
+        if (titleColumn < 0 || urlColumn < 0) {
+            throw new IllegalArgumentException("CSV header must contain title and url columns");
+        }
+
+        Batch batch = new Batch();
+        try {
+            while (true) {
+                List<String> record;
+                try {
+                    record = reader.next();
+                } catch (IllegalArgumentException e) {
+                    // Where the next record starts is unknown after a malformed one, so stop here
+                    batch.reject(reader.recordLine(), "malformed CSV, import stopped: " + e.getMessage());
+                    break;
+                }
+                if (record == null) {
+                    break;
+                }
+                batch.add(reader.recordLine(), column(record, titleColumn), column(record, descriptionColumn), column(record, urlColumn));
+            }
+            batch.flush();
+        } finally {
+            batch.complete();
+        }
+        return batch.toResponse();
+    }
+
+    private static String text(JsonNode node, String field) {
+        JsonNode value = node.get(field);
+        return value == null || value.isNull() ? null : value.asText();
+    }
+
+    private static String column(List<String> record, int index) {
+        return index >= 0 && index < record.size() ? record.get(index) : null;
+    }
+
+    /**
+     * Validates records and buffers them until a batch is full.
+     */
+    private final class Batch {
+
+        private final long startNanos = System.nanoTime();
+        private final Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        private final List<Object[]> rows = new ArrayList<>(batchSize);
+        private final List<String> errors = new ArrayList<>();
+        private long imported;
+        private long rejected;
+        private long durationMs;
+
+        void add(long lineNumber, String title, String description, String url) {
+            title = title == null ? "" : title.trim();
+            url = url == null ? "" : url.trim();
+            description = description == null || description.isBlank() ? null : description.trim();
+            if (title.isEmpty() || url.isEmpty()) {
+                reject(lineNumber, "title and url are required");
+                return;
+            }
+            if (title.length() > MAX_TITLE || url.length() > MAX_URL
+                    || (description != null && description.length() > MAX_DESCRIPTION)) {
+                reject(lineNumber, "field too long");
+                return;
+            }
+            rows.add(new Object[]{title, description, url, now, now});
+            if (rows.size() >= batchSize) {
+                flush();
+            }
+        }
+
+        void reject(long lineNumber, String reason) {
+            rejected++;
+            if (errors.size() < MAX_REPORTED_ERRORS) {
+                errors.add("line " + lineNumber + ": " + reason);
+            }
+        }
+
+        void flush() {
+            if (rows.isEmpty()) {
+                return;
+            }
+            jdbcTemplate.batchUpdate(INSERT_SQL, rows);
+            imported += rows.size();
+            rows.clear();
+        }
+
+        /**
+         * Record metrics and announce the rows written, also when the import failed part way.
+         */
+        void complete() {
+            durationMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos);
+            importTimer.record(durationMs, TimeUnit.MILLISECONDS);
+            importedRows.increment(imported);
+            rejectedRows.increment(rejected);
+            if (imported > 0) {
+                eventPublisher.publishEvent(new SearchItemsImportedEvent(imported));
+            }
+            logger.info("Search item import - imported: {}, rejected: {}, duration: {}ms, rate: {}/s",
+                    imported, rejected, durationMs, itemsPerSecond());
+        }
+
+        SearchImportResponse toResponse() {
+            return SearchImportResponse.builder()
+                    .imported(imported)
+                    .rejected(rejected)
+                    .durationMs(durationMs)
+                    .itemsPerSecond(itemsPerSecond())
+                    .errors(errors)
+                    .build();
+        }
+
+        private long itemsPerSecond() {
+            return durationMs == 0 ? imported : imported * 1000 / durationMs;
+        }
+    }
+}
@@ -0,0 +1,10 @@
+package com.bcbbs.backend.search;
+
+/**
+ * Published after a bulk import wrote search items directly through JDBC, bypassing the
+ * per-entity {@link SearchItemChangedEvent}s.
+ *
+ * @param imported number of rows inserted
+ */
+public record SearchItemsImportedEvent(long imported) {
+}
@@ -0,0 +1,13 @@
+package com.bcbbs.backend.search;
+
+/**
+ * How public search is answered ("search.mode").
+ */
+public enum SearchMode {
+    /** In-process n-gram index ({@link SearchIndex}); falls back to LIKE until loaded. */
+    INDEX,
+    /** LIKE '%q%' on title and description; scans the table. */
+    LIKE,
+    /** MySQL FULLTEXT index with the ngram parser; no heap cost, see db/search_items_fulltext.sql. */
+    FULLTEXT
+}
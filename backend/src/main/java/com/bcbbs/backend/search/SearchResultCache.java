@@ -0,0 +1,102 @@
+package com.bcbbs.backend.search;
+
+import com.bcbbs.backend.dto.SearchPageResponse;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Cache of search result pages keyed by normalized query, page size and cursor position.
+ * Bounded by the total number of cached result items (Caffeine's W-TinyLFU eviction) and by a TTL
+ * that limits staleness from rows edited outside the application. Any search item change clears it.
+ * <p>
+ * Hit, miss and eviction counters are exported as "cache.*" metrics named "search.results";
+ * the time to compute each missed page is the "search.cache.load" timer.
+ * Cached pages are shared between requests and must not be modified.
+ */
+@Component
+public class SearchResultCache {
+
+    /**
+     * Runs after the search index (order 0) has applied the same change, so a reload cannot
+     * observe the index from before the change.
+     */
+    public static final int LISTENER_ORDER = 10;
+
+    private final Cache<Key, SearchPageResponse> cache;
+    private final Timer loadTimer;
+
+    // Bumped on every invalidation; a load that straddles one is not cached
+    private final AtomicLong generation = new AtomicLong();
+
+    public SearchResultCache(MeterRegistry meterRegistry,
+                             @Value("${search.cache.max-items:100000}") long maxItems,
+                             @Value("${search.cache.ttl-seconds:60}") long ttlSeconds) {
+        this.cache = Caffeine.newBuilder()
+                .maximumWeight(maxItems)
+                .weigher((Key key, SearchPageResponse page) -> 1 + page.getItems().size())
+                .expireAfterWrite(Duration.ofSeconds(ttlSeconds))
+                .recordStats()
+                .build();
+        this.loadTimer = Timer.builder("search.cache.load")
+                .description("Time to compute a search result page missing from the cache")
+                .register(meterRegistry);
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, "search.results");
+    }
+
+    /**
+     * Cached page for the key, computing and caching it on a miss.
+     *
+     * @param normalizedQuery query passed through {@link SearchText#normalize(String)}
+     */
+    public SearchPageResponse get(String normalizedQuery, int limit, SearchCursor after, Supplier<SearchPageResponse> loader) {
+        Key key = new Key(normalizedQuery, limit, after);
+        SearchPageResponse cached = cache.getIfPresent(key);
+        if (cached != null) {
+            return cached;
+        }
+        long startGeneration = generation.get();
+        long start = System.nanoTime();
+        SearchPageResponse page = loader.get();
+        loadTimer.record(Duration.ofNanos(System.nanoTime() - start));
+        if (generation.get() == startGeneration) {
+            cache.put(key, page);
+            if (generation.get() != startGeneration) {
+                // Invalidated between the check and the put
+                cache.invalidate(key);
+            }
+        }
+        return page;
+    }
+
+    public void invalidateAll() {
+        generation.incrementAndGet();
+        cache.invalidateAll();
+    }
+
+    @Order(LISTENER_ORDER)
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onSearchItemChanged(SearchItemChangedEvent event) {
+        invalidateAll();
+    }
+
+    @EventListener
+    public void onSearchItemsImported(SearchItemsImportedEvent event) {
+        invalidateAll();
+    }
+
+    private record Key(String query, int limit, SearchCursor after) {
+    }
+}
@@ -0,0 +1,42 @@
+package com.bcbbs.backend.search;
+
+import java.text.Normalizer;
+import java.util.Locale;
+
+/**
+ * Text normalization shared by indexing and querying.
+ */
+public final class SearchText {
+
+    private SearchText() {
+    }
+
+    /**
+     * NFKC-normalize (full-width forms become their half-width equivalents) and case-fold.
+     * Returns an empty string for null.
+     */
+    public static String normalize(String text) {
+        if (text == null || text.isEmpty()) {
+            return "";
+        }
+        return Normalizer.normalize(text, Normalizer.Form.NFKC).toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * Boolean-mode MATCH ... AGAINST expression equivalent to a substring search for the keyword
+     * on an ngram FULLTEXT index: a quoted phrase, or a prefix term for keywords shorter than the
+     * default ngram token size. Returns null when the keyword cannot be expressed safely.
+     */
+    public static String toFulltextQuery(String keyword) {
+        String trimmed = keyword == null ? "" : keyword.trim();
+        if (trimmed.isEmpty()) {
+            return null;
+        }
+        if (trimmed.codePointCount(0, trimmed.length()) == 1) {
+            return Character.isLetterOrDigit(trimmed.codePointAt(0)) ? trimmed + "*" : null;
+        }
+        // Inside a phrase only the quote itself is an operator
+        String phrase = trimmed.replace('"', ' ').trim();
+        return phrase.isEmpty() ? null : "\"" + phrase + "\"";
+    }
+}
@@ -0,0 +1,104 @@
+package com.bcbbs.backend.search;
+
+import com.bcbbs.backend.repository.SearchItemRepository;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.TaskScheduler;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Title autocomplete served from a {@link SuggestTrie} held in memory, so lookups never touch MySQL.
+ * The trie is immutable: changes trigger a debounced background rebuild and the new trie is swapped
+ * in atomically. A periodic rebuild picks up rows edited outside the application.
+ */
+@Component
+public class SuggestIndex {
+
+    private static final Logger logger = LoggerFactory.getLogger(SuggestIndex.class);
+
+    private final SearchItemRepository searchItemRepository;
+    private final TaskScheduler taskScheduler;
+    private final Timer rebuildTimer;
+    private final int topK;
+    private final long debounceMillis;
+
+    private volatile SuggestTrie trie = SuggestTrie.EMPTY;
+    private final AtomicBoolean rebuildScheduled = new AtomicBoolean();
+
+    public SuggestIndex(SearchItemRepository searchItemRepository,
+                        TaskScheduler taskScheduler,
+                        MeterRegistry meterRegistry,
+                        @Value("${search.suggest.top-k:10}") int topK,
+                        @Value("${search.suggest.debounce-ms:2000}") long debounceMillis) {
+        this.searchItemRepository = searchItemRepository;
+        this.taskScheduler = taskScheduler;
+        this.topK = topK;
+        this.debounceMillis = debounceMillis;
+        this.rebuildTimer = Timer.builder("search.suggest.rebuild")
+                .description("Time to rebuild the title autocomplete trie")
+                .register(meterRegistry);
+        Gauge.builder("search.suggest.titles", this, index -> index.trie.size())
+                .description("Distinct titles in the autocomplete trie")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Up to {@code limit} title completions for the prefix; empty until the first build completes.
+     */
+    public List<String> suggest(String prefix, int limit) {
+        return trie.suggest(prefix, Math.min(limit, topK));
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void loadOnStartup() {
+        taskScheduler.schedule(this::rebuild, Instant.now());
+    }
+
+    /**
+     * Coalesce bursts of changes into one rebuild after the debounce delay.
+     */
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onSearchItemChanged(SearchItemChangedEvent event) {
+        scheduleRebuild();
+    }
+
+    @EventListener
+    public void onSearchItemsImported(SearchItemsImportedEvent event) {
+        scheduleRebuild();
+    }
+
+    private void scheduleRebuild() {
+        if (rebuildScheduled.compareAndSet(false, true)) {
+            taskScheduler.schedule(() -> {
+                rebuildScheduled.set(false);
+                rebuild();
+            }, Instant.now().plusMillis(debounceMillis));
+        }
+    }
+
+    @Scheduled(initialDelayString = "${search.index.rebuild-interval-ms:300000}",
+            fixedDelayString = "${search.index.rebuild-interval-ms:300000}")
+    public synchronized void rebuild() {
+        try {
+            SuggestTrie rebuilt = rebuildTimer.record(() ->
+                    SuggestTrie.build(searchItemRepository.findAllTitles(), topK));
+            trie = rebuilt;
+            logger.debug("Suggest trie rebuilt - titles: {}", rebuilt.size());
+        } catch (RuntimeException e) {
+            logger.warn("Suggest trie rebuild failed - Error: {}", e.getMessage());
+        }
+    }
+}
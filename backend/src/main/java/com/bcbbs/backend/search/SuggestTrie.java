@@ -0,0 +1,311 @@
+package com.bcbbs.backend.search;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Immutable prefix index over titles that answers "top completions for this prefix" without search.
+ * <p>
+ * A radix trie (chains of single-child nodes collapsed) stored in flat arrays. Every node carries
+ * its precomputed top-k completions as ranks into a shared pool, so a lookup is one walk down the
+ * prefix plus copying at most k titles. Titles are ranked by how many items share the normalized
+ * title, then by length, then alphabetically.
+ */
+public class SuggestTrie {
+
+    public static final SuggestTrie EMPTY = build(List.of(), 1);
+
+    // Normalized keys, sorted; node labels are read from them instead of being stored
+    private final String[] keys;
+    // Display title for each rank
+    private final String[] titleByRank;
+
+    // Node arrays; node 0 is the root. Node i covers keys[nodeKey[i]].substring(0, nodePrefixEnd[i])
+    private final int[] nodeKey;
+    private final int[] nodePrefixEnd;
+    private final int[] childStart;
+    private final int[] childCount;
+    private final int[] topStart;
+    private final byte[] topCount;
+    private final int[] topPool;
+
+    private SuggestTrie(String[] keys, String[] titleByRank, int[] nodeKey, int[] nodePrefixEnd,
+                        int[] childStart, int[] childCount, int[] topStart, byte[] topCount, int[] topPool) {
+        this.keys = keys;
+        this.titleByRank = titleByRank;
+        this.nodeKey = nodeKey;
+        this.nodePrefixEnd = nodePrefixEnd;
+        this.childStart = childStart;
+        this.childCount = childCount;
+        this.topStart = topStart;
+        this.topCount = topCount;
+        this.topPool = topPool;
+    }
+
+    /**
+     * Build a trie over the titles, keeping the best {@code k} completions per node.
+     */
+    public static SuggestTrie build(Collection<String> titles, int k) {
+        if (k < 1 || k > Byte.MAX_VALUE) {
+            throw new IllegalArgumentException("k must be between 1 and 127");
+        }
+        // Group titles by normalized key; the first display form seen wins
+        Map<String, int[]> counts = new HashMap<>();
+        Map<String, String> displays = new HashMap<>();
+        for (String title : titles) {
+            if (title == null) {
+                continue;
+            }
+            String key = SearchText.normalize(title).trim();
+            if (key.isEmpty()) {
+                continue;
+            }
+            counts.computeIfAbsent(key, ignored -> new int[1])[0]++;
+            displays.putIfAbsent(key, title.trim());
+        }
+
+        String[] keys = counts.keySet().toArray(String[]::new);
+        Arrays.sort(keys);
+
+        Integer[] byRank = new Integer[keys.length];
+        for (int i = 0; i < keys.length; i++) {
+            byRank[i] = i;
+        }
+        Arrays.sort(byRank, Comparator
+                .comparingInt((Integer i) -> -counts.get(keys[i])[0])
+                .thenComparingInt(i -> keys[i].length())
+                .thenComparing(i -> keys[i]));
+        int[] rankOfKey = new int[keys.length];
+        String[] titleByRank = new String[keys.length];
+        for (int rank = 0; rank < byRank.length; rank++) {
+            rankOfKey[byRank[rank]] = rank;
+            titleByRank[rank] = displays.get(keys[byRank[rank]]);
+        }
+
+        Builder builder = new Builder(keys, rankOfKey, k);
+        builder.buildRoot();
+        return builder.finish(titleByRank);
+    }
+
+    /**
+     * Up to {@code limit} completions for the prefix, best first.
+     */
+    public List<String> suggest(String prefix, int limit) {
+        String query = SearchText.normalize(prefix).trim();
+        if (query.isEmpty() || keys.length == 0) {
+            return List.of();
+        }
+        int node = 0;
+        int position = 0;
+        while (true) {
+            String key = keys[nodeKey[node]];
+            int end = nodePrefixEnd[node];
+            int compareEnd = Math.min(end, query.length());
+            if (!query.regionMatches(position, key, position, compareEnd - position)) {
+                return List.of();
+            }
+            if (query.length() <= end) {
+                return top(node, limit);
+            }
+            node = findChild(node, query.charAt(end), end);
+            if (node < 0) {
+                return List.of();
+            }
+            position = end;
+        }
+    }
+
+    /**
+     * Number of distinct normalized titles.
+     */
+    public int size() {
+        return keys.length;
+    }
+
+    private List<String> top(int node, int limit) {
+        int count = Math.min(limit, topCount[node]);
+        List<String> result = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            result.add(titleByRank[topPool[topStart[node] + i]]);
+        }
+        return result;
+    }
+
+    /**
+     * Binary search among the node's children for the one whose label continues with {@code c}.
+     */
+    private int findChild(int node, char c, int offset) {
+        int low = childStart[node];
+        int high = low + childCount[node] - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            char label = keys[nodeKey[mid]].charAt(offset);
+            if (label < c) {
+                low = mid + 1;
+            } else if (label > c) {
+                high = mid - 1;
+            } else {
+                return mid;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Builds the node arrays depth-first; children of a node occupy consecutive slots.
+     */
+    private static final class Builder {
+
+        private final String[] keys;
+        private final int[] rankOfKey;
+        private final int k;
+
+        private int[] nodeKey = new int[16];
+        private int[] nodePrefixEnd = new int[16];
+        private int[] childStart = new int[16];
+        private int[] childCount = new int[16];
+        private int[] topStart = new int[16];
+        private byte[] topCount = new byte[16];
+        private int nodeCount;
+        private int[] topPool = new int[64];
+        private int topPoolSize;
+
+        private Builder(String[] keys, int[] rankOfKey, int k) {
+            this.keys = keys;
+            this.rankOfKey = rankOfKey;
+            this.k = k;
+        }
+
+        void buildRoot() {
+            // The root covers the empty prefix even when all keys share a longer one
+            int root = allocate(1);
+            if (keys.length > 0) {
+                buildChildren(root, 0, keys.length, 0);
+            }
+        }
+
+        /**
+         * Fill node {@code node} for keys[low..high), which all share their first {@code depth} chars.
+         */
+        private void buildNode(int node, int low, int high, int depth) {
+            String first = keys[low];
+            String last = keys[high - 1];
+            int end = depth;
+            int max = Math.min(first.length(), last.length());
+            while (end < max && first.charAt(end) == last.charAt(end)) {
+                end++;
+            }
+            nodeKey[node] = low;
+            nodePrefixEnd[node] = end;
+            buildChildren(node, low, high, end);
+        }
+
+        private void buildChildren(int node, int low, int high, int end) {
+            // Sorted order puts the key equal to the prefix (if any) first
+            int start = low;
+            boolean terminal = keys[low].length() == end;
+            if (terminal) {
+                start++;
+            }
+
+            int groups = 0;
+            for (int i = start; i < high; ) {
+                int j = groupEnd(i, high, end);
+                groups++;
+                i = j;
+            }
+            int first = allocate(groups);
+            childStart[node] = first;
+            childCount[node] = groups;
+
+            int child = first;
+            for (int i = start; i < high; ) {
+                int j = groupEnd(i, high, end);
+                buildNode(child++, i, j, end + 1);
+                i = j;
+            }
+
+            mergeTop(node, terminal ? rankOfKey[low] : -1, first, groups);
+        }
+
+        private int groupEnd(int from, int high, int offset) {
+            char c = keys[from].charAt(offset);
+            int j = from + 1;
+            while (j < high && keys[j].charAt(offset) == c) {
+                j++;
+            }
+            return j;
+        }
+
+        /**
+         * Node's top-k: the k best ranks among its own key and its children's top-k lists.
+         */
+        private void mergeTop(int node, int ownRank, int firstChild, int children) {
+            int[] cursor = new int[children];
+            int start = topPoolSize;
+            boolean ownPending = ownRank >= 0;
+            int count = 0;
+            while (count < k) {
+                int best = ownPending ? ownRank : Integer.MAX_VALUE;
+                int bestChild = -1;
+                for (int c = 0; c < children; c++) {
+                    int child = firstChild + c;
+                    if (cursor[c] < topCount[child]) {
+                        int rank = topPool[topStart[child] + cursor[c]];
+                        if (rank < best) {
+                            best = rank;
+                            bestChild = c;
+                        }
+                    }
+                }
+                if (best == Integer.MAX_VALUE) {
+                    break;
+                }
+                if (bestChild >= 0) {
+                    cursor[bestChild]++;
+                } else {
+                    ownPending = false;
+                }
+                appendTop(best);
+                count++;
+            }
+            topStart[node] = start;
+            topCount[node] = (byte) count;
+        }
+
+        private void appendTop(int rank) {
+            if (topPoolSize == topPool.length) {
+                topPool = Arrays.copyOf(topPool, topPool.length * 2);
+            }
+            topPool[topPoolSize++] = rank;
+        }
+
+        private int allocate(int count) {
+            int first = nodeCount;
+            nodeCount += count;
+            if (nodeCount > nodeKey.length) {
+                int capacity = Math.max(nodeCount, nodeKey.length * 2);
+                nodeKey = Arrays.copyOf(nodeKey, capacity);
+                nodePrefixEnd = Arrays.copyOf(nodePrefixEnd, capacity);
+                childStart = Arrays.copyOf(childStart, capacity);
+                childCount = Arrays.copyOf(childCount, capacity);
+                topStart = Arrays.copyOf(topStart, capacity);
+                topCount = Arrays.copyOf(topCount, capacity);
+            }
+            return first;
+        }
+
+        SuggestTrie finish(String[] titleByRank) {
+            return new SuggestTrie(keys, titleByRank,
+                    Arrays.copyOf(nodeKey, nodeCount), Arrays.copyOf(nodePrefixEnd, nodeCount),
+                    Arrays.copyOf(childStart, nodeCount), Arrays.copyOf(childCount, nodeCount),
+                    Arrays.copyOf(topStart, nodeCount), Arrays.copyOf(topCount, nodeCount),
+                    Arrays.copyOf(topPool, topPoolSize));
+        }
+    }
+}
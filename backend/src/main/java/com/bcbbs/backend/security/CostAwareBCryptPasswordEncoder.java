@@ -0,0 +1,28 @@
+package com.bcbbs.backend.security;
+
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+
+/**
+ * BCrypt encoder that asks for a rehash when a stored hash was produced with a lower cost.
+ * Stronger hashes are kept: nodes or restarts that calibrate to different strengths would otherwise
+ * rewrite each other's hashes on every login, and lower the stored cost along the way.
+ */
+public class CostAwareBCryptPasswordEncoder extends BCryptPasswordEncoder {
+
+    private final int strength;
+
+    public CostAwareBCryptPasswordEncoder(int strength) {
+        super(strength);
+        this.strength = strength;
+    }
+
+    public int getStrength() {
+        return strength;
+    }
+
+    @Override
+    public boolean upgradeEncoding(String encodedPassword) {
+        int cost = PasswordHashCalibrator.costOf(encodedPassword);
+        return cost > 0 && cost < strength;
+    }
+}
@@ -1,5 +1,6 @@
 package com.bcbbs.backend.security;
 
+import com.bcbbs.backend.entity.User;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
@@ -8,20 +9,19 @@ import lombok.RequiredArgsConstructor;
 import org.springframework.lang.NonNull;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.context.SecurityContextHolder;
-import org.springframework.security.core.userdetails.UserDetails;
-import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.security.web.authentication.WebAuthenticationDetailsSource;
 import org.springframework.stereotype.Component;
 import org.springframework.web.filter.OncePerRequestFilter;
 
 import java.io.IOException;
+import java.util.Optional;
 
 @Component
 @RequiredArgsConstructor
 public class JwtAuthenticationFilter extends OncePerRequestFilter {
 
     private final JwtService jwtService;
-    private final UserDetailsService userDetailsService;
+    private final TokenVersionRegistry tokenVersionRegistry;
 
     @Override
     protected void doFilterInternal(
@@ -31,7 +31,6 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
     ) throws ServletException, IOException {
         final String authHeader = request.getHeader("Authorization");
         final String jwt;
-        final String username;
 
         if (authHeader == null || !authHeader.startsWith("Bearer ")) {
             filterChain.doFilter(request, response);
@@ -45,15 +44,18 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
             // - Our frontend attaches Authorization to every request by default.
             // - If parsing/validation fails, we should NOT block public endpoints with 403.
             //   Treat invalid tokens as anonymous and continue the chain.
-            username = jwtService.extractUsername(jwt);
+            // The token is parsed and verified exactly once here; verify() returns empty for invalid tokens.
+            // The principal is rebuilt from claims and checked against the in-memory token version table,
+            // so authenticated requests need no database lookup.
+            Optional<User> principal = jwtService.verify(jwt).flatMap(jwtService::toPrincipal);
 
-            if (username != null && SecurityContextHolder.getContext().getAuthentication() == null) {
-                UserDetails userDetails = this.userDetailsService.loadUserByUsername(username);
-                if (jwtService.isTokenValid(jwt, userDetails)) {
+            if (principal.isPresent() && SecurityContextHolder.getContext().getAuthentication() == null) {
+                User user = principal.get();
+                if (tokenVersionRegistry.isCurrent(user)) {
                     UsernamePasswordAuthenticationToken authToken = new UsernamePasswordAuthenticationToken(
-                            userDetails,
+                            user,
                             null,
-                            userDetails.getAuthorities()
+                            user.getAuthorities()
                     );
                     authToken.setDetails(new WebAuthenticationDetailsSource().buildDetails(request));
                     SecurityContextHolder.getContext().setAuthentication(authToken);
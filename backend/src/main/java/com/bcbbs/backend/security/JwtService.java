@@ -1,28 +1,142 @@
 package com.bcbbs.backend.security;
 
+import com.bcbbs.backend.entity.User;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
 import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwtException;
+import io.jsonwebtoken.JwtParser;
 import io.jsonwebtoken.Jwts;
 import io.jsonwebtoken.io.Decoders;
 import io.jsonwebtoken.security.Keys;
+import jakarta.annotation.PostConstruct;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.stereotype.Service;
 
 import javax.crypto.SecretKey;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Base64;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.Optional;
 import java.util.function.Function;
 
 @Service
 public class JwtService {
 
+    // Claims that let the authentication filter rebuild the principal without a database lookup
+    public static final String CLAIM_USER_ID = "uid";
+    public static final String CLAIM_ROLE = "role";
+    public static final String CLAIM_ENABLED = "enabled";
+    public static final String CLAIM_TOKEN_VERSION = "ver";
+    public static final String CLAIM_EMAIL = "email";
+    public static final String CLAIM_NICKNAME = "nickname";
+
     @Value("${jwt.secret}")
     private String secretKey;
 
     @Value("${jwt.expiration}")
     private long jwtExpiration;
 
+    // Maximum number of verified token digests kept in memory
+    @Value("${jwt.verified-cache.max-size:10000}")
+    private long verifiedCacheMaxSize;
+
+    // Upper bound for how long a verified token stays cached, regardless of its own expiration
+    @Value("${jwt.verified-cache.max-ttl-seconds:300}")
+    private long verifiedCacheMaxTtlSeconds;
+
+    // Signing key and parser are immutable and thread-safe, so they are built once at startup
+    private SecretKey signingKey;
+    private JwtParser jwtParser;
+
+    // Verified tokens keyed by the SHA-256 digest of the raw token, so raw tokens are never retained
+    private Cache<String, VerifiedToken> verifiedTokens;
+
+    private static final ThreadLocal<MessageDigest> SHA256 = ThreadLocal.withInitial(() -> {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    });
+
+    @PostConstruct
+    void init() {
+        byte[] keyBytes = Decoders.BASE64.decode(secretKey);
+        this.signingKey = Keys.hmacShaKeyFor(keyBytes);
+        this.jwtParser = Jwts.parser()
+                .verifyWith(signingKey)
+                .build();
+
+        Duration maxTtl = Duration.ofSeconds(verifiedCacheMaxTtlSeconds);
+        this.verifiedTokens = Caffeine.newBuilder()
+                .maximumSize(verifiedCacheMaxSize)
+                .expireAfter(new Expiry<String, VerifiedToken>() {
+                    @Override
+                    public long expireAfterCreate(String key, VerifiedToken value, long currentTime) {
+                        // Never keep a token cached past its own expiration
+                        Duration remaining = Duration.between(Instant.now(), value.expiresAt());
+                        if (remaining.isNegative()) {
+                            return 0L;
+                        }
+                        return (remaining.compareTo(maxTtl) < 0 ? remaining : maxTtl).toNanos();
+                    }
+
+                    @Override
+                    public long expireAfterUpdate(String key, VerifiedToken value, long currentTime,
+                                                  long currentDuration) {
+                        return currentDuration;
+                    }
+
+                    @Override
+                    public long expireAfterRead(String key, VerifiedToken value, long currentTime,
+                                                long currentDuration) {
+                        return currentDuration;
+                    }
+                })
+                .build();
+    }
+
+    /**
+     * Parse and verify a token exactly once.
+     * Returns the cached result for tokens verified recently, so repeated requests from the same
+     * session skip signature checking and JSON parsing. Invalid or expired tokens yield an empty result
+     * instead of an exception.
+     */
+    public Optional<VerifiedToken> verify(String token) {
+        if (token == null || token.isEmpty()) {
+            return Optional.empty();
+        }
+
+        Instant now = Instant.now();
+        String digest = digest(token);
+        VerifiedToken cached = verifiedTokens.getIfPresent(digest);
+        if (cached != null) {
+            return cached.isExpiredAt(now) ? Optional.empty() : Optional.of(cached);
+        }
+
+        VerifiedToken verified;
+        try {
+            verified = toVerifiedToken(jwtParser.parseSignedClaims(token).getPayload());
+        } catch (JwtException | IllegalArgumentException e) {
+            return Optional.empty();
+        }
+        if (verified.username() == null || verified.isExpiredAt(now)) {
+            return Optional.empty();
+        }
+
+        verifiedTokens.put(digest, verified);
+        return Optional.of(verified);
+    }
+
     public String extractUsername(String token) {
         return extractClaim(token, Claims::getSubject);
     }
@@ -32,8 +146,25 @@ public class JwtService {
         return claimsResolver.apply(claims);
     }
 
+    /**
+     * Generate a token for the user. Tokens for {@link User} principals carry the user id, role,
+     * enabled flag and token version so that requests can be authenticated from claims alone.
+     */
     public String generateToken(UserDetails userDetails) {
-        return generateToken(new HashMap<>(), userDetails);
+        Map<String, Object> claims = new HashMap<>();
+        if (userDetails instanceof User user) {
+            claims.put(CLAIM_USER_ID, user.getId());
+            claims.put(CLAIM_ROLE, user.getRole().name());
+            claims.put(CLAIM_ENABLED, user.isEnabled());
+            claims.put(CLAIM_TOKEN_VERSION, user.getTokenVersion() != null ? user.getTokenVersion() : 0);
+            if (user.getEmail() != null) {
+                claims.put(CLAIM_EMAIL, user.getEmail());
+            }
+            if (user.getNickname() != null) {
+                claims.put(CLAIM_NICKNAME, user.getNickname());
+            }
+        }
+        return generateToken(claims, userDetails);
     }
 
     public String generateToken(Map<String, Object> extraClaims, UserDetails userDetails) {
@@ -46,34 +177,77 @@ public class JwtService {
                 .subject(userDetails.getUsername())
                 .issuedAt(new Date(System.currentTimeMillis()))
                 .expiration(new Date(System.currentTimeMillis() + expiration))
-                .signWith(getSignInKey())
+                .signWith(signingKey)
                 .compact();
     }
 
     public boolean isTokenValid(String token, UserDetails userDetails) {
-        final String username = extractUsername(token);
-        return (username.equals(userDetails.getUsername())) && !isTokenExpired(token);
+        return verify(token)
+                .map(verified -> verified.username().equals(userDetails.getUsername()))
+                .orElse(false);
     }
 
-    private boolean isTokenExpired(String token) {
-        return extractExpiration(token).before(new Date());
+    /**
+     * Rebuild the user principal from verified claims.
+     * Returns empty for tokens issued before user claims were introduced; those must be re-issued by logging in again.
+     * The returned user carries no password hash.
+     */
+    public Optional<User> toPrincipal(VerifiedToken token) {
+        Map<String, Object> claims = token.claims();
+        Object userId = claims.get(CLAIM_USER_ID);
+        Object role = claims.get(CLAIM_ROLE);
+        Object version = claims.get(CLAIM_TOKEN_VERSION);
+        if (!(userId instanceof Number) || !(role instanceof String) || !(version instanceof Number)) {
+            return Optional.empty();
+        }
+
+        User.Role userRole;
+        try {
+            userRole = User.Role.valueOf((String) role);
+        } catch (IllegalArgumentException e) {
+            return Optional.empty();
+        }
+
+        return Optional.of(User.builder()
+                .id(((Number) userId).longValue())
+                .username(token.username())
+                .email((String) claims.get(CLAIM_EMAIL))
+                .nickname((String) claims.get(CLAIM_NICKNAME))
+                .role(userRole)
+                .enabled(Boolean.TRUE.equals(claims.get(CLAIM_ENABLED)))
+                .tokenVersion(((Number) version).intValue())
+                .build());
     }
 
-    private Date extractExpiration(String token) {
-        return extractClaim(token, Claims::getExpiration);
+    private Claims extractAllClaims(String token) {
+        return jwtParser.parseSignedClaims(token).getPayload();
     }
 
-    private Claims extractAllClaims(String token) {
-        return Jwts.parser()
-                .verifyWith(getSignInKey())
-                .build()
-                .parseSignedClaims(token)
-                .getPayload();
+    /**
+     * Convert parsed claims into the immutable verification result.
+     */
+    private VerifiedToken toVerifiedToken(Claims claims) {
+        Date issuedAt = claims.getIssuedAt();
+        Date expiration = claims.getExpiration();
+        if (expiration == null) {
+            // Tokens issued by this service always carry an expiration
+            throw new IllegalArgumentException("Token has no expiration");
+        }
+        return new VerifiedToken(
+                claims.getSubject(),
+                issuedAt != null ? issuedAt.toInstant() : null,
+                expiration.toInstant(),
+                claims
+        );
     }
 
-    private SecretKey getSignInKey() {
-        byte[] keyBytes = Decoders.BASE64.decode(secretKey);
-        return Keys.hmacShaKeyFor(keyBytes);
+    /**
+     * SHA-256 digest of the raw token, used as the verified-token cache key.
+     */
+    private static String digest(String token) {
+        MessageDigest messageDigest = SHA256.get();
+        messageDigest.reset();
+        byte[] hash = messageDigest.digest(token.getBytes(StandardCharsets.US_ASCII));
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(hash);
     }
 }
-
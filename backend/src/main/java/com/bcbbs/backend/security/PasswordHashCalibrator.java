@@ -0,0 +1,82 @@
+package com.bcbbs.backend.security;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.security.crypto.bcrypt.BCrypt;
+
+/**
+ * Picks a BCrypt work factor for the current hardware.
+ * Each extra strength step doubles the hashing cost, so the calibrator measures one hash at the
+ * minimum strength and walks upwards while the projected time still fits the latency target.
+ */
+public final class PasswordHashCalibrator {
+
+    private static final Logger logger = LoggerFactory.getLogger(PasswordHashCalibrator.class);
+
+    // BCrypt accepts strengths 4..31
+    private static final int BCRYPT_MIN = 4;
+    private static final int BCRYPT_MAX = 31;
+
+    // Hashes measured per strength; the fastest run is used to filter out GC and JIT noise
+    private static final int SAMPLES = 3;
+
+    private PasswordHashCalibrator() {
+    }
+
+    /**
+     * Find the largest strength in [minStrength, maxStrength] whose hash time does not exceed the target.
+     * Always returns at least minStrength, even on hardware that is slower than the target.
+     */
+    public static int calibrate(long targetMillis, int minStrength, int maxStrength) {
+        int min = Math.max(BCRYPT_MIN, minStrength);
+        int max = Math.min(BCRYPT_MAX, Math.max(min, maxStrength));
+
+        // Warm up the JIT so the first measurement is not dominated by interpretation
+        BCrypt.hashpw("calibration-warmup", BCrypt.gensalt(BCRYPT_MIN));
+
+        int strength = min;
+        double millis = measure(strength);
+        while (strength < max && millis * 2 <= targetMillis) {
+            strength++;
+            millis = measure(strength);
+        }
+
+        logger.info("BCrypt calibration - target: {}ms, chosen strength: {}, measured: {}ms",
+                targetMillis, strength, Math.round(millis));
+        return strength;
+    }
+
+    /**
+     * Read the cost encoded in a BCrypt hash ("$2a$10$..."), or -1 when the value is not a BCrypt hash.
+     */
+    public static int costOf(String encodedPassword) {
+        if (encodedPassword == null || encodedPassword.length() < 7 || encodedPassword.charAt(0) != '$') {
+            return -1;
+        }
+        int costStart = encodedPassword.indexOf('$', 1) + 1;
+        if (costStart <= 0 || costStart + 2 >= encodedPassword.length()
+                || encodedPassword.charAt(costStart + 2) != '$') {
+            return -1;
+        }
+        char tens = encodedPassword.charAt(costStart);
+        char ones = encodedPassword.charAt(costStart + 1);
+        if (!Character.isDigit(tens) || !Character.isDigit(ones)) {
+            return -1;
+        }
+        return (tens - '0') * 10 + (ones - '0');
+    }
+
+    /**
+     * Fastest of several hash timings at the given strength, in milliseconds.
+     */
+    private static double measure(int strength) {
+        long best = Long.MAX_VALUE;
+        for (int i = 0; i < SAMPLES; i++) {
+            String salt = BCrypt.gensalt(strength);
+            long start = System.nanoTime();
+            BCrypt.hashpw("calibration-sample", salt);
+            best = Math.min(best, System.nanoTime() - start);
+        }
+        return best / 1_000_000.0;
+    }
+}
@@ -0,0 +1,16 @@
+package com.bcbbs.backend.security;
+
+/**
+ * Thrown when the password hashing pool is saturated and cannot accept more work.
+ * Mapped to 503 Service Unavailable by the global exception handler.
+ */
+public class PasswordHashingRejectedException extends RuntimeException {
+
+    public PasswordHashingRejectedException(String message) {
+        super(message);
+    }
+
+    public PasswordHashingRejectedException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
@@ -0,0 +1,33 @@
+package com.bcbbs.backend.security;
+
+import com.bcbbs.backend.entity.User;
+
+/**
+ * The parts of a user's stored state that a JWT's claims must still agree with to be accepted.
+ *
+ * @param version current token version
+ * @param enabled whether the account is enabled
+ * @param role    current role
+ */
+public record TokenState(int version, boolean enabled, User.Role role) {
+
+    /**
+     * Marker for users that no longer exist; matches no token.
+     */
+    public static final TokenState MISSING = new TokenState(-1, false, null);
+
+    public static TokenState of(User user) {
+        return new TokenState(user.getTokenVersion() != null ? user.getTokenVersion() : 0,
+                Boolean.TRUE.equals(user.getEnabled()), user.getRole());
+    }
+
+    /**
+     * Whether a principal rebuilt from token claims still reflects this state.
+     */
+    public boolean accepts(User principal) {
+        return enabled
+                && principal.getTokenVersion() != null && principal.getTokenVersion() == version
+                && principal.isEnabled()
+                && principal.getRole() == role;
+    }
+}
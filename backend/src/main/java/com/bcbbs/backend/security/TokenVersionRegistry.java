@@ -0,0 +1,53 @@
+package com.bcbbs.backend.security;
+
+import com.bcbbs.backend.entity.User;
+import com.bcbbs.backend.repository.UserRepository;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.LoadingCache;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+/**
+ * In-memory table of the current token version, enabled flag and role per user.
+ * A JWT is only accepted when its "ver", "enabled" and "role" claims agree with the state recorded
+ * here, so bumping a user's version (password change, forced password change, role or enabled
+ * change) revokes all previously issued tokens without a database lookup on every request.
+ * Entries are reloaded from the database after "jwt.token-version.ttl-seconds", which bounds how
+ * long a change made on another node or directly in the database goes unnoticed.
+ */
+@Component
+public class TokenVersionRegistry {
+
+    private final LoadingCache<Long, TokenState> states;
+
+    public TokenVersionRegistry(UserRepository userRepository,
+                                @Value("${jwt.token-version.max-size:100000}") long maxSize,
+                                @Value("${jwt.token-version.ttl-seconds:30}") long ttlSeconds) {
+        this.states = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(Duration.ofSeconds(ttlSeconds))
+                .build(userId -> userRepository.findTokenStateById(userId).orElse(TokenState.MISSING));
+    }
+
+    /**
+     * Whether a principal rebuilt from token claims is still current for its user.
+     */
+    public boolean isCurrent(User principal) {
+        if (principal.getId() == null) {
+            return false;
+        }
+        TokenState current = states.get(principal.getId());
+        return current != null && current.accepts(principal);
+    }
+
+    /**
+     * Record the state of a user after it has been persisted.
+     */
+    public void update(User saved) {
+        if (saved.getId() != null) {
+            states.put(saved.getId(), TokenState.of(saved));
+        }
+    }
+}
@@ -0,0 +1,33 @@
+package com.bcbbs.backend.security;
+
+import java.time.Instant;
+import java.util.Map;
+
+/**
+ * Immutable result of a single successful JWT verification.
+ * Produced once per token by {@link JwtService#verify(String)} and shared through the verified-token cache,
+ * so it must never expose mutable state.
+ *
+ * @param username  token subject
+ * @param issuedAt  issue time (may be null for tokens without "iat")
+ * @param expiresAt expiration time
+ * @param claims    unmodifiable copy of all token claims
+ */
+public record VerifiedToken(
+        String username,
+        Instant issuedAt,
+        Instant expiresAt,
+        Map<String, Object> claims
+) {
+
+    public VerifiedToken {
+        claims = Map.copyOf(claims);
+    }
+
+    /**
+     * Whether the token is already expired at the given instant.
+     */
+    public boolean isExpiredAt(Instant now) {
+        return !expiresAt.isAfter(now);
+    }
+}
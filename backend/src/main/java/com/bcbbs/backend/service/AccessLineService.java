@@ -1,24 +1,293 @@
 package com.bcbbs.backend.service;
 
+import com.bcbbs.backend.dto.ApiResponse;
+import com.bcbbs.backend.dto.BestLineResponse;
+import com.bcbbs.backend.dto.LineDeltaResponse;
 import com.bcbbs.backend.dto.LineResponse;
 import com.bcbbs.backend.entity.AccessLine;
+import com.bcbbs.backend.lines.AccessLineChangedEvent;
+import com.bcbbs.backend.lines.LatencyHistogram;
+import com.bcbbs.backend.lines.LineDeltaEvent;
+import com.bcbbs.backend.lines.LineSnapshot;
 import com.bcbbs.backend.repository.AccessLineRepository;
-import lombok.RequiredArgsConstructor;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
 
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
 
+/**
+ * Active access lines, served from an immutable snapshot per line type.
+ * Snapshots are rebuilt after any line change commits and every "lines.snapshot.refresh-interval-ms"
+ * (for rows edited directly in the database); between refreshes no request touches the database.
+ * Each snapshot change is published as a {@link LineDeltaEvent}.
+ * <p>
+ * Latency samples (from the prober and, capped relative to those, from clients) feed a rolling
+ * {@link LatencyHistogram} per line. The best-line ranking computed from them is rebuilt every "lines.best.recompute-ms" and
+ * published as an immutable list, so readers only dereference a volatile field.
+ */
 @Service
-@RequiredArgsConstructor
 public class AccessLineService {
 
+    private static final Logger logger = LoggerFactory.getLogger(AccessLineService.class);
+
     private final AccessLineRepository accessLineRepository;
+    private final ObjectMapper objectMapper;
+    private final ApplicationEventPublisher eventPublisher;
+
+    private final int latencyWindowSlots;
+    private final long latencySlotMillis;
+    private final double clientSampleShare;
+
+    // Replaced as a whole on refresh; null until the first load
+    private volatile Map<AccessLine.LineType, LineSnapshot> snapshots;
+    private volatile Set<Long> activeLineIds = Set.of();
+    // Snapshots reordered for a client network's preferred lines; cleared on refresh
+    private final Map<AccessLine.LineType, Map<List<Long>, LineSnapshot>> preferredSnapshots =
+            new EnumMap<>(AccessLine.LineType.class);
+
+    private final Map<Long, LatencyHistogram> histograms = new ConcurrentHashMap<>();
+    // Replaced as a whole on recompute; null until the first computation
+    private volatile Map<AccessLine.LineType, List<BestLineResponse>> rankings;
+
+    public AccessLineService(AccessLineRepository accessLineRepository,
+                             ObjectMapper objectMapper,
+                             ApplicationEventPublisher eventPublisher,
+                             @Value("${lines.best.window-slots:10}") int latencyWindowSlots,
+                             @Value("${lines.best.slot-ms:60000}") long latencySlotMillis,
+                             @Value("${lines.best.client-share:1.0}") double clientSampleShare) {
+        this.accessLineRepository = accessLineRepository;
+        this.objectMapper = objectMapper;
+        this.eventPublisher = eventPublisher;
+        this.latencyWindowSlots = latencyWindowSlots;
+        this.latencySlotMillis = latencySlotMillis;
+        this.clientSampleShare = clientSampleShare;
+        for (AccessLine.LineType type : AccessLine.LineType.values()) {
+            preferredSnapshots.put(type, new ConcurrentHashMap<>());
+        }
+    }
 
     /**
      * Load active lines by type in display order.
      */
     public List<LineResponse> getActiveLines(AccessLine.LineType type) {
-        return accessLineRepository.findByTypeAndActiveTrueOrderBySortOrderAsc(type)
+        return getSnapshot(type).lines();
+    }
+
+    /**
+     * Current snapshot of the active lines of the type, loading all snapshots on first use.
+     */
+    public LineSnapshot getSnapshot(AccessLine.LineType type) {
+        Map<AccessLine.LineType, LineSnapshot> current = snapshots;
+        if (current == null) {
+            current = refresh();
+        }
+        return current.get(type);
+    }
+
+    /**
+     * Snapshot of the active lines of the type with the preferred lines moved to the front, in the
+     * preferred order; the other lines keep the display order. Ids that are not active lines of the
+     * type are skipped. Each distinct preference is serialized once per snapshot and then served
+     * from memory.
+     *
+     * @param preferredLineIds line ids best first, or null for the display order
+     */
+    public LineSnapshot getSnapshot(AccessLine.LineType type, List<Long> preferredLineIds) {
+        LineSnapshot base = getSnapshot(type);
+        if (preferredLineIds == null || preferredLineIds.isEmpty()) {
+            return base;
+        }
+        LineSnapshot cached = preferredSnapshots.get(type).get(preferredLineIds);
+        if (cached != null && cached.loadedAt().equals(base.loadedAt())) {
+            return cached;
+        }
+        LineSnapshot ordered = reorder(base, preferredLineIds);
+        preferredSnapshots.get(type).put(preferredLineIds, ordered);
+        return ordered;
+    }
+
+    /**
+     * Reload every line type from the database. Snapshots whose content is unchanged are kept,
+     * so their ETag and load time stay the same.
+     *
+     * @return the snapshots now being served
+     */
+    public synchronized Map<AccessLine.LineType, LineSnapshot> refresh() {
+        Map<AccessLine.LineType, LineSnapshot> previous = snapshots;
+        Map<AccessLine.LineType, LineSnapshot> refreshed = new EnumMap<>(AccessLine.LineType.class);
+        List<LineDeltaEvent> deltas = new ArrayList<>();
+        for (AccessLine.LineType type : AccessLine.LineType.values()) {
+            LineSnapshot snapshot = load(type);
+            LineSnapshot old = previous == null ? null : previous.get(type);
+            if (old != null && old.etag().equals(snapshot.etag())) {
+                snapshot = old;
+            } else {
+                logger.info("Access line snapshot updated - type: {}, lines: {}, etag: {}",
+                        type, snapshot.lines().size(), snapshot.etag());
+                if (old != null) {
+                    deltas.add(new LineDeltaEvent(type, snapshot, delta(type, old.lines(), snapshot.lines())));
+                }
+            }
+            refreshed.put(type, snapshot);
+        }
+        snapshots = refreshed;
+        // Also drops preferences no longer in the preference table
+        preferredSnapshots.values().forEach(Map::clear);
+        activeLineIds = refreshed.values().stream()
+                .flatMap(snapshot -> snapshot.lines().stream())
+                .map(LineResponse::getId)
+                .collect(Collectors.toUnmodifiableSet());
+        deltas.forEach(eventPublisher::publishEvent);
+        return refreshed;
+    }
+
+    @Scheduled(initialDelayString = "${lines.snapshot.refresh-interval-ms:60000}",
+            fixedDelayString = "${lines.snapshot.refresh-interval-ms:60000}")
+    public void scheduledRefresh() {
+        try {
+            refresh();
+        } catch (RuntimeException e) {
+            // Keep serving the previous snapshots
+            logger.warn("Access line snapshot refresh failed - Error: {}", e.getMessage());
+        }
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onAccessLineChanged(AccessLineChangedEvent event) {
+        scheduledRefresh();
+    }
+
+    /**
+     * Add a probe latency sample for an active line; samples for other ids are ignored.
+     *
+     * @param latencyMs measured latency, or null if the line could not be reached
+     */
+    public void recordProbeLatency(Long lineId, Integer latencyMs) {
+        LatencyHistogram histogram = histogram(lineId);
+        if (histogram != null) {
+            histogram.recordProbe(latencyMs, System.currentTimeMillis());
+        }
+    }
+
+    /**
+     * Add a client-reported latency sample for an active line. Dropped for other ids, and once the
+     * line's window holds "lines.best.client-share" client samples per probe sample.
+     *
+     * @param latencyMs measured latency, or null if the line could not be reached
+     * @return whether the sample was recorded
+     */
+    public boolean recordClientLatency(Long lineId, Integer latencyMs) {
+        LatencyHistogram histogram = histogram(lineId);
+        return histogram != null && histogram.recordClient(latencyMs, System.currentTimeMillis());
+    }
+
+    private LatencyHistogram histogram(Long lineId) {
+        if (lineId == null || !activeLineIds.contains(lineId)) {
+            return null;
+        }
+        return histograms.computeIfAbsent(lineId,
+                id -> new LatencyHistogram(latencyWindowSlots, latencySlotMillis, clientSampleShare));
+    }
+
+    /**
+     * Active lines of the type, best first, from the last computed ranking.
+     */
+    public List<BestLineResponse> getBestLines(AccessLine.LineType type) {
+        Map<AccessLine.LineType, List<BestLineResponse>> current = rankings;
+        if (current == null) {
+            current = recomputeRankings();
+        }
+        return current.get(type);
+    }
+
+    /**
+     * Rank the active lines of every type by their rolling statistics: lines with successful
+     * samples by (p50 + p95) / 2 divided by the success rate, i.e. the expected wait when failed
+     * attempts are retried; then lines without samples, in display order; then lines that only
+     * failed.
+     */
+    public Map<AccessLine.LineType, List<BestLineResponse>> recomputeRankings() {
+        Map<AccessLine.LineType, LineSnapshot> current = snapshots;
+        if (current == null) {
+            current = refresh();
+        }
+        // Forget lines that are no longer active
+        histograms.keySet().retainAll(activeLineIds);
+
+        long now = System.currentTimeMillis();
+        Map<AccessLine.LineType, List<BestLineResponse>> computed = new EnumMap<>(AccessLine.LineType.class);
+        for (LineSnapshot snapshot : current.values()) {
+            List<RankedLine> ranked = new ArrayList<>();
+            for (LineResponse line : snapshot.lines()) {
+                LatencyHistogram histogram = histograms.get(line.getId());
+                LatencyHistogram.Summary summary = histogram == null ? null : histogram.summarize(now);
+                ranked.add(new RankedLine(line, summary));
+            }
+            // Stable sort keeps display order among equal scores
+            ranked.sort(Comparator.comparingInt(RankedLine::tier).thenComparingDouble(RankedLine::score));
+            computed.put(snapshot.type(), ranked.stream().map(RankedLine::toResponse).toList());
+        }
+        rankings = computed;
+        return computed;
+    }
+
+    @Scheduled(initialDelayString = "${lines.best.recompute-ms:5000}",
+            fixedDelayString = "${lines.best.recompute-ms:5000}")
+    public void scheduledRecompute() {
+        try {
+            recomputeRankings();
+        } catch (RuntimeException e) {
+            // Keep serving the previous ranking
+            logger.warn("Best line ranking failed - Error: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Lines added or changed, ids no longer active, and the new order if it differs.
+     */
+    private static LineDeltaResponse delta(AccessLine.LineType type, List<LineResponse> before, List<LineResponse> after) {
+        Map<Long, LineResponse> previous = new HashMap<>();
+        before.forEach(line -> previous.put(line.getId(), line));
+        List<LineResponse> updated = new ArrayList<>();
+        for (LineResponse line : after) {
+            if (!line.equals(previous.remove(line.getId()))) {
+                updated.add(line);
+            }
+        }
+        List<Long> removed = new ArrayList<>(previous.keySet());
+        List<Long> beforeOrder = before.stream().map(LineResponse::getId).toList();
+        List<Long> afterOrder = after.stream().map(LineResponse::getId).toList();
+        return LineDeltaResponse.builder()
+                .type(type.name())
+                .updated(updated)
+                .removed(removed)
+                .order(beforeOrder.equals(afterOrder) ? null : afterOrder)
+                .build();
+    }
+
+    private LineSnapshot load(AccessLine.LineType type) {
+        List<LineResponse> lines = accessLineRepository.findByTypeAndActiveTrueOrderBySortOrderAsc(type)
                 .stream()
                 .map(line -> LineResponse.builder()
                         .id(line.getId())
@@ -28,6 +297,76 @@ public class AccessLineService {
                         .pingMs(line.getLastPingMs())
                         .build())
                 .toList();
+        return snapshot(type, lines, Instant.now());
     }
-}
 
+    private LineSnapshot reorder(LineSnapshot base, List<Long> preferredLineIds) {
+        Map<Long, LineResponse> remaining = new LinkedHashMap<>();
+        base.lines().forEach(line -> remaining.put(line.getId(), line));
+        List<LineResponse> lines = new ArrayList<>(remaining.size());
+        for (Long id : preferredLineIds) {
+            LineResponse line = remaining.remove(id);
+            if (line != null) {
+                lines.add(line);
+            }
+        }
+        lines.addAll(remaining.values());
+        if (lines.equals(base.lines())) {
+            return base;
+        }
+        // Same load time as the base: the content is only a different order of it
+        return snapshot(base.type(), List.copyOf(lines), base.loadedAt());
+    }
+
+    private LineSnapshot snapshot(AccessLine.LineType type, List<LineResponse> lines, Instant loadedAt) {
+        byte[] body;
+        try {
+            body = objectMapper.writeValueAsBytes(ApiResponse.success(lines));
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Failed to serialize access lines", e);
+        }
+        return new LineSnapshot(type, lines, body, etag(body), loadedAt);
+    }
+
+    private record RankedLine(LineResponse line, LatencyHistogram.Summary summary) {
+
+        int tier() {
+            if (summary != null && summary.samples() > 0) {
+                return 0;
+            }
+            return summary == null || summary.failures() == 0 ? 1 : 2;
+        }
+
+        double score() {
+            if (tier() != 0) {
+                return 0;
+            }
+            return (summary.p50() + summary.p95()) / 2.0 / (1 - summary.failureRate());
+        }
+
+        BestLineResponse toResponse() {
+            boolean measured = summary != null && summary.samples() + summary.failures() > 0;
+            return BestLineResponse.builder()
+                    .id(line.getId())
+                    .name(line.getName())
+                    .url(line.getUrl())
+                    .p50Ms(measured ? summary.p50() : null)
+                    .p95Ms(measured ? summary.p95() : null)
+                    .failureRate(measured ? summary.failureRate() : null)
+                    .samples(measured ? summary.samples() + summary.failures() : null)
+                    .build();
+        }
+    }
+
+    /**
+     * Strong ETag from the SHA-256 of the body, quoted.
+     */
+    private static String etag(byte[] body) {
+        try {
+            byte[] hash = MessageDigest.getInstance("SHA-256").digest(body);
+            return "\"" + Base64.getUrlEncoder().withoutPadding().encodeToString(hash) + "\"";
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+}
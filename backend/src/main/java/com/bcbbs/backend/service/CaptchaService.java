@@ -1,72 +1,75 @@
 package com.bcbbs.backend.service;
 
+import com.bcbbs.backend.captcha.CaptchaCodes;
+import com.bcbbs.backend.captcha.CaptchaImage;
+import com.bcbbs.backend.captcha.CaptchaImagePool;
+import com.bcbbs.backend.captcha.CaptchaStore;
+import com.bcbbs.backend.captcha.IssuedCaptchaImage;
 import com.bcbbs.backend.dto.CaptchaResponse;
-import com.bcbbs.backend.entity.CaptchaToken;
-import com.bcbbs.backend.repository.CaptchaTokenRepository;
 import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.stereotype.Service;
 
 import java.security.SecureRandom;
+import java.time.Instant;
 import java.time.LocalDateTime;
-import java.util.UUID;
+import java.time.ZoneId;
+import java.time.temporal.ChronoUnit;
 
 @Service
 @RequiredArgsConstructor
 public class CaptchaService {
 
-    private static final int CAPTCHA_LENGTH = 4;
     private static final int CAPTCHA_EXPIRATION_MINUTES = 5;
-    private static final String CAPTCHA_DIGITS = "0123456789";
 
-    private final CaptchaTokenRepository captchaTokenRepository;
+    private final CaptchaStore captchaStore;
+    private final ObjectProvider<CaptchaImagePool> imagePool;
     private final SecureRandom secureRandom = new SecureRandom();
 
     /**
-     * Create and persist a new captcha token.
+     * Create and store a new captcha token.
      */
-    @SuppressWarnings("null")
     public CaptchaResponse createCaptcha() {
-        String token = UUID.randomUUID().toString().replace("-", "");
-        String code = generateCode();
-        LocalDateTime expiresAt = LocalDateTime.now().plusMinutes(CAPTCHA_EXPIRATION_MINUTES);
-
-        CaptchaToken captchaToken = CaptchaToken.builder()
-                .token(token)
-                .code(code)
-                .expiresAt(expiresAt)
-                .used(false)
-                .build();
-        captchaTokenRepository.save(captchaToken);
+        String code = CaptchaCodes.generate(secureRandom);
+        Instant expiresAt = Instant.now().plus(CAPTCHA_EXPIRATION_MINUTES, ChronoUnit.MINUTES);
+        String token = captchaStore.issue(code, expiresAt);
 
         return CaptchaResponse.builder()
                 .token(token)
                 .code(code)
-                .expiresAt(expiresAt)
+                .expiresAt(LocalDateTime.ofInstant(expiresAt, ZoneId.systemDefault()))
                 .build();
     }
 
     /**
-     * Validate and consume a captcha token.
+     * Whether captchas are served as server-rendered images ("captcha.image.enabled").
      */
-    public boolean validateCaptcha(String token, String code) {
-        return captchaTokenRepository.findByTokenAndUsedFalse(token)
-                .filter(captcha -> captcha.getExpiresAt().isAfter(LocalDateTime.now()))
-                .filter(captcha -> captcha.getCode().equals(code))
-                .map(captcha -> {
-                    captcha.setUsed(true);
-                    captchaTokenRepository.save(captcha);
-                    return true;
-                })
-                .orElse(false);
+    public boolean isImageEnabled() {
+        return imagePool.getIfAvailable() != null;
     }
 
-    private String generateCode() {
-        StringBuilder builder = new StringBuilder();
-        for (int i = 0; i < CAPTCHA_LENGTH; i++) {
-            int index = secureRandom.nextInt(CAPTCHA_DIGITS.length());
-            builder.append(CAPTCHA_DIGITS.charAt(index));
-        }
-        return builder.toString();
+    /**
+     * Take a pre-rendered captcha image and register its code with a new token.
+     * Call {@link #releaseImage(CaptchaImage)} once the image has been written.
+     */
+    public IssuedCaptchaImage createCaptchaImage() {
+        CaptchaImage image = imagePool.getObject().take();
+        Instant expiresAt = Instant.now().plus(CAPTCHA_EXPIRATION_MINUTES, ChronoUnit.MINUTES);
+        String token = captchaStore.issue(image.code(), expiresAt);
+        return new IssuedCaptchaImage(token, expiresAt, image);
     }
-}
 
+    /**
+     * Return an image's buffer to the pool for reuse.
+     */
+    public void releaseImage(CaptchaImage image) {
+        imagePool.getObject().release(image);
+    }
+
+    /**
+     * Validate and consume a captcha token.
+     */
+    public boolean validateCaptcha(String token, String code) {
+        return captchaStore.consume(token, code);
+    }
+}
@@ -0,0 +1,37 @@
+package com.bcbbs.backend.service;
+
+import com.bcbbs.backend.entity.User;
+
+/**
+ * Outcome of a role login attempt.
+ * Expected failures (unknown user, wrong password, wrong role, locked account) are reported through
+ * {@link Status} instead of exceptions, so failed logins do not pay for stack trace creation.
+ *
+ * @param status             outcome of the attempt
+ * @param user               authenticated user, only set on {@link Status#SUCCESS}
+ * @param needPasswordChange whether the user still has to change the initial password
+ */
+public record LoginResult(Status status, User user, boolean needPasswordChange) {
+
+    public enum Status {
+        SUCCESS,
+        INVALID_ROLE,
+        BAD_CREDENTIALS,
+        ACCOUNT_DISABLED,
+        // Disabled by the "initial password not changed" mechanism; unlock via force-change-password
+        PASSWORD_CHANGE_LOCKED,
+        ROLE_MISMATCH
+    }
+
+    public static LoginResult success(User user, boolean needPasswordChange) {
+        return new LoginResult(Status.SUCCESS, user, needPasswordChange);
+    }
+
+    public static LoginResult failure(Status status) {
+        return new LoginResult(status, null, false);
+    }
+
+    public boolean isSuccess() {
+        return status == Status.SUCCESS;
+    }
+}
@@ -0,0 +1,93 @@
+package com.bcbbs.backend.service;
+
+import com.bcbbs.backend.entity.User;
+import lombok.RequiredArgsConstructor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.stereotype.Service;
+
+import java.util.Optional;
+
+/**
+ * Role login without going through the AuthenticationManager.
+ * The user is loaded once (served from the user cache when possible), credentials, account state and
+ * role are checked in memory, and the "login without password change" counter is bumped with one
+ * conditional UPDATE. A login therefore costs at most two statements and never throws on the expected failure paths.
+ */
+@Service
+@RequiredArgsConstructor
+public class LoginService {
+
+    private static final Logger logger = LoggerFactory.getLogger(LoginService.class);
+
+    // Password hashed against when the user does not exist, so unknown usernames take as long as wrong passwords
+    private static final String DUMMY_PASSWORD = "userNotFoundPassword";
+
+    private final UserService userService;
+    private final PasswordEncoder passwordEncoder;
+
+    private volatile String dummyPasswordHash;
+
+    /**
+     * Authenticate a user for the required role.
+     * Contains forced password change logic for MEMBER and AGENT: every login before the initial
+     * password is changed increments the counter and asks the frontend to redirect to the change page.
+     */
+    public LoginResult roleLogin(String username, String rawPassword, String role) {
+        User.Role requiredRole;
+        try {
+            requiredRole = User.Role.valueOf(role.toUpperCase());
+        } catch (IllegalArgumentException ex) {
+            return LoginResult.failure(LoginResult.Status.INVALID_ROLE);
+        }
+
+        Optional<User> found = userService.findOptionalByUsername(username);
+        if (found.isEmpty()) {
+            // Spend the same hashing time as a real password check
+            passwordEncoder.matches(rawPassword, dummyPasswordHash());
+            return LoginResult.failure(LoginResult.Status.BAD_CREDENTIALS);
+        }
+
+        User user = found.get();
+        boolean restrictedRole = user.getRole() == User.Role.MEMBER || user.getRole() == User.Role.AGENT;
+        boolean passwordChanged = Boolean.TRUE.equals(user.getPasswordChanged());
+
+        if (!user.isEnabled()) {
+            // Account disabled by "initial password not changed" mechanism: guide to forced password change endpoint
+            return LoginResult.failure(restrictedRole && !passwordChanged
+                    ? LoginResult.Status.PASSWORD_CHANGE_LOCKED
+                    : LoginResult.Status.ACCOUNT_DISABLED);
+        }
+
+        if (!passwordEncoder.matches(rawPassword, user.getPassword())) {
+            return LoginResult.failure(LoginResult.Status.BAD_CREDENTIALS);
+        }
+
+        if (user.getRole() != requiredRole) {
+            logger.warn("Role mismatch - Requested role: {}, Actual role: {}", requiredRole, user.getRole());
+            return LoginResult.failure(LoginResult.Status.ROLE_MISMATCH);
+        }
+
+        userService.upgradePasswordHashIfNeeded(user, rawPassword);
+
+        if (!restrictedRole || passwordChanged) {
+            return LoginResult.success(user, false);
+        }
+
+        // No longer disable account to avoid deadlock. Only record count and let frontend force redirect to password change page.
+        userService.recordLoginWithoutPasswordChange(user);
+        logger.info("Login without password change - User: {}, Login count: {}",
+                user.getUsername(), user.getLoginCountWithoutChange());
+        return LoginResult.success(user, true);
+    }
+
+    private String dummyPasswordHash() {
+        String hash = dummyPasswordHash;
+        if (hash == null) {
+            hash = passwordEncoder.encode(DUMMY_PASSWORD);
+            dummyPasswordHash = hash;
+        }
+        return hash;
+    }
+}
@@ -1,32 +1,132 @@
 package com.bcbbs.backend.service;
 
 import com.bcbbs.backend.dto.SearchItemResponse;
+import com.bcbbs.backend.dto.SearchPageResponse;
 import com.bcbbs.backend.repository.SearchItemRepository;
-import lombok.RequiredArgsConstructor;
+import com.bcbbs.backend.search.SearchCursor;
+import com.bcbbs.backend.search.SearchDocument;
+import com.bcbbs.backend.search.SearchHit;
+import com.bcbbs.backend.search.SearchIndex;
+import com.bcbbs.backend.search.SearchMode;
+import com.bcbbs.backend.search.SearchResultCache;
+import com.bcbbs.backend.search.SearchText;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Limit;
 import org.springframework.stereotype.Service;
 
 import java.util.List;
+import java.util.Locale;
 
 @Service
-@RequiredArgsConstructor
 public class SearchService {
 
+    public static final int DEFAULT_PAGE_SIZE = 20;
+
     private final SearchItemRepository searchItemRepository;
+    private final ObjectProvider<SearchIndex> searchIndex;
+    private final SearchResultCache resultCache;
+    private final SearchMode mode;
+    private final int maxPageSize;
+
+    public SearchService(SearchItemRepository searchItemRepository,
+                         ObjectProvider<SearchIndex> searchIndex,
+                         SearchResultCache resultCache,
+                         @Value("${search.mode:index}") String mode,
+                         @Value("${search.max-page-size:50}") int maxPageSize) {
+        this.searchItemRepository = searchItemRepository;
+        this.searchIndex = searchIndex;
+        this.resultCache = resultCache;
+        this.mode = SearchMode.valueOf(mode.trim().toUpperCase(Locale.ROOT));
+        this.maxPageSize = maxPageSize;
+    }
+
+    /**
+     * Search items by keyword in title and description, one keyset page at a time.
+     * The in-memory index ranks results by relevance, the database modes order them by id.
+     * The page size is capped at "search.max-page-size".
+     * The keyword is normalized (trimmed, NFKC, case-folded) first, so variants of the same query
+     * share one entry in the result cache.
+     *
+     * @param pageSize requested page size, or null for the default
+     * @param after    position after the previous page, {@link SearchCursor#FIRST} for the first page
+     */
+    public SearchPageResponse search(String keyword, Integer pageSize, SearchCursor after) {
+        int limit = Math.max(1, Math.min(pageSize == null ? DEFAULT_PAGE_SIZE : pageSize, maxPageSize));
+        String query = SearchText.normalize(keyword).trim();
+        if (query.isEmpty()) {
+            return SearchPageResponse.builder().items(List.of()).build();
+        }
+        return resultCache.get(query, limit, after, () -> loadPage(query, limit, after));
+    }
+
+    private SearchPageResponse loadPage(String keyword, int limit, SearchCursor after) {
+        // One extra hit tells whether another page exists
+        List<SearchHit> hits = switch (mode) {
+            case INDEX -> searchIndex(keyword, after, limit + 1);
+            case FULLTEXT -> searchFulltext(keyword, after.afterId(), limit + 1);
+            case LIKE -> searchLike(keyword, after.afterId(), limit + 1);
+        };
+
+        boolean hasMore = hits.size() > limit;
+        List<SearchHit> page = hasMore ? hits.subList(0, limit) : hits;
+        return SearchPageResponse.builder()
+                .items(page.stream().map(this::toResponse).toList())
+                .nextCursor(hasMore ? SearchCursor.after(page.get(page.size() - 1)).encode() : null)
+                .build();
+    }
+
+    /**
+     * Answer from the in-memory index, ranked by relevance; falls back to the database (ordered by id)
+     * until the index has loaded.
+     */
+    private List<SearchHit> searchIndex(String keyword, SearchCursor after, int limit) {
+        SearchIndex index = searchIndex.getIfAvailable();
+        if (index == null || !index.isReady()) {
+            return searchLike(keyword, after.afterId(), limit);
+        }
+        return index.search(keyword, after, limit);
+    }
 
     /**
-     * Search items by keyword in title and description.
+     * Answer from the FULLTEXT index, ordered by id; keywords that cannot be expressed as a MATCH
+     * query use LIKE.
      */
-    public List<SearchItemResponse> search(String keyword) {
-        return searchItemRepository
-                .findByTitleContainingIgnoreCaseOrDescriptionContainingIgnoreCase(keyword, keyword)
-                .stream()
-                .map(item -> SearchItemResponse.builder()
-                        .id(item.getId())
-                        .title(item.getTitle())
-                        .description(item.getDescription())
-                        .url(item.getUrl())
-                        .build())
+    private List<SearchHit> searchFulltext(String keyword, long afterId, int limit) {
+        String query = SearchText.toFulltextQuery(keyword);
+        if (query == null) {
+            return searchLike(keyword, afterId, limit);
+        }
+        return searchItemRepository.findFulltextPage(query, afterId, limit).stream()
+                .map(row -> new SearchHit(row.toDocument(), null))
+                .toList();
+    }
+
+    private List<SearchHit> searchLike(String keyword, long afterId, int limit) {
+        return searchItemRepository.findPageContaining(likePattern(keyword), afterId, Limit.of(limit)).stream()
+                .map(document -> new SearchHit(document, null))
                 .toList();
     }
-}
 
+    /**
+     * Lower-case "%keyword%" with LIKE wildcards escaped by '!'.
+     */
+    private static String likePattern(String keyword) {
+        String escaped = keyword.toLowerCase(Locale.ROOT)
+                .replace("!", "!!")
+                .replace("%", "!%")
+                .replace("_", "!_");
+        return "%" + escaped + "%";
+    }
+
+    private SearchItemResponse toResponse(SearchHit hit) {
+        SearchDocument document = hit.document();
+        return SearchItemResponse.builder()
+                .id(document.id())
+                .title(document.title())
+                .description(document.description())
+                .url(document.url())
+                .score(hit.score())
+                .build();
+    }
+}
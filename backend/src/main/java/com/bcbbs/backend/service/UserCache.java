@@ -0,0 +1,86 @@
+package com.bcbbs.backend.service;
+
+import com.bcbbs.backend.entity.User;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Optional;
+import java.util.function.Function;
+
+/**
+ * Write-through cache of user entities keyed by username.
+ * Entries are bounded by size and TTL. Callers always receive a detached copy, so mutating
+ * a returned user never leaks into the cache; changes become visible only through {@link #put(User)}.
+ * Hit, miss and eviction counters are exported as "cache.*" metrics with the name "users.by-username".
+ */
+@Component
+public class UserCache {
+
+    private final Cache<String, User> byUsername;
+
+    public UserCache(MeterRegistry meterRegistry,
+                     @Value("${users.cache.max-size:10000}") long maxSize,
+                     @Value("${users.cache.ttl-seconds:300}") long ttlSeconds) {
+        Duration ttl = Duration.ofSeconds(ttlSeconds);
+        this.byUsername = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(ttl)
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, byUsername, "users.by-username");
+    }
+
+    /**
+     * Look up a user by username, loading and caching it on a miss.
+     * Missing users are not cached.
+     */
+    public Optional<User> getByUsername(String username, Function<String, Optional<User>> loader) {
+        User cached = byUsername.get(username, key -> loader.apply(key).map(UserCache::copyOf).orElse(null));
+        if (cached == null) {
+            return Optional.empty();
+        }
+        return Optional.of(copyOf(cached));
+    }
+
+    /**
+     * Store the persisted state of a user after it has been saved.
+     */
+    public void put(User user) {
+        byUsername.put(user.getUsername(), copyOf(user));
+    }
+
+    /**
+     * Drop a user, forcing the next lookup to hit the database.
+     */
+    public void invalidate(User user) {
+        if (user.getUsername() != null) {
+            byUsername.invalidate(user.getUsername());
+        }
+    }
+
+    /**
+     * Detached field-by-field copy of a user entity.
+     */
+    private static User copyOf(User user) {
+        return User.builder()
+                .id(user.getId())
+                .username(user.getUsername())
+                .email(user.getEmail())
+                .password(user.getPassword())
+                .nickname(user.getNickname())
+                .avatar(user.getAvatar())
+                .role(user.getRole())
+                .enabled(user.getEnabled())
+                .passwordChanged(user.getPasswordChanged())
+                .loginCountWithoutChange(user.getLoginCountWithoutChange())
+                .tokenVersion(user.getTokenVersion())
+                .createdAt(user.getCreatedAt())
+                .updatedAt(user.getUpdatedAt())
+                .build();
+    }
+}
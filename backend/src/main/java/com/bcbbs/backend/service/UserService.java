@@ -2,32 +2,84 @@ package com.bcbbs.backend.service;
 
 import com.bcbbs.backend.entity.User;
 import com.bcbbs.backend.repository.UserRepository;
+import com.bcbbs.backend.security.BoundedPasswordEncoder;
+import com.bcbbs.backend.security.TokenVersionRegistry;
+import jakarta.annotation.PreDestroy;
 import lombok.RequiredArgsConstructor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.lang.NonNull;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
-import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
 
+import java.util.Optional;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
 @Service
 @RequiredArgsConstructor
 public class UserService implements UserDetailsService {
 
+    private static final Logger logger = LoggerFactory.getLogger(UserService.class);
+
     private final UserRepository userRepository;
-    private final PasswordEncoder passwordEncoder;
+    private final BoundedPasswordEncoder passwordEncoder;
+    private final TokenVersionRegistry tokenVersionRegistry;
+    private final UserCache userCache;
+
+    // Writes upgraded hashes, so a slow database never occupies the CPU-sized hashing pool.
+    // Upgrades are retried on a later login, so excess ones are simply dropped.
+    private final ThreadPoolExecutor rehashWriter = new ThreadPoolExecutor(
+            1, 1,
+            0L, TimeUnit.MILLISECONDS,
+            new ArrayBlockingQueue<>(256),
+            runnable -> {
+                Thread thread = new Thread(runnable, "password-rehash-writer");
+                thread.setDaemon(true);
+                return thread;
+            },
+            new ThreadPoolExecutor.DiscardPolicy()
+    );
 
     @Override
     public UserDetails loadUserByUsername(String username) throws UsernameNotFoundException {
-        return userRepository.findByUsername(username)
-                .orElseThrow(() -> new UsernameNotFoundException("User not found: " + username));
+        return findByUsername(username);
     }
 
+    /**
+     * Find a user by username, served from the user cache when possible.
+     * The returned entity is a detached copy; persist changes through {@link #save(User)}.
+     */
     public User findByUsername(String username) {
-        return userRepository.findByUsername(username)
+        return userCache.getByUsername(username, userRepository::findByUsername)
                 .orElseThrow(() -> new UsernameNotFoundException("User not found: " + username));
     }
 
+    /**
+     * Find a user by username without throwing when it does not exist.
+     */
+    public Optional<User> findOptionalByUsername(String username) {
+        return userCache.getByUsername(username, userRepository::findByUsername);
+    }
+
+    /**
+     * Increment the "login without password change" counter with a single conditional UPDATE
+     * and mirror the new value into the given user and the user cache.
+     */
+    public void recordLoginWithoutPasswordChange(User user) {
+        if (userRepository.incrementLoginCountWithoutChange(user.getId()) > 0) {
+            int current = user.getLoginCountWithoutChange() != null ? user.getLoginCountWithoutChange() : 0;
+            user.setLoginCountWithoutChange(current + 1);
+            userCache.put(user);
+        } else {
+            // Password was changed concurrently; let the next lookup reload the real state
+            userCache.invalidate(user);
+        }
+    }
+
     public boolean existsByUsername(String username) {
         return userRepository.existsByUsername(username);
     }
@@ -36,23 +88,72 @@ public class UserService implements UserDetailsService {
         return userRepository.existsByEmail(email);
     }
 
+    /**
+     * Persist the user and write the saved state through to the user cache and the token version table.
+     */
     public User save(@NonNull User user) {
-        return userRepository.save(user);
+        User saved = userRepository.save(user);
+        userCache.put(saved);
+        tokenVersionRegistry.update(saved);
+        return saved;
     }
     
-    public void changePassword(User user, String oldPassword, String newPassword) {
-        // Verify old password
-        if (!passwordEncoder.matches(oldPassword, user.getPassword())) {
-            throw new IllegalArgumentException("Old password is incorrect");
+    /**
+     * After a successful login, rehash the password in the background when its stored cost differs
+     * from the current calibrated strength. Never blocks the login; if the hashing pool has no spare
+     * capacity the upgrade is simply retried on a later login. The database write runs on its own
+     * writer thread, never on the hashing pool.
+     */
+    public void upgradePasswordHashIfNeeded(User user, String rawPassword) {
+        String oldHash = user.getPassword();
+        Long userId = user.getId();
+        if (userId == null || oldHash == null || !passwordEncoder.upgradeEncoding(oldHash)) {
+            return;
         }
+        passwordEncoder.encodeInBackground(rawPassword).whenCompleteAsync((newHash, error) -> {
+            if (error != null) {
+                logger.debug("Password rehash skipped - User: {}, Reason: {}", user.getUsername(), error.getMessage());
+                return;
+            }
+            try {
+                if (userRepository.updatePasswordHash(userId, oldHash, newHash) > 0) {
+                    userCache.invalidate(user);
+                    logger.info("Password hash upgraded to current cost - User: {}", user.getUsername());
+                }
+            } catch (RuntimeException e) {
+                logger.warn("Password rehash failed - User: {}, Error: {}", user.getUsername(), e.getMessage());
+            }
+        }, rehashWriter);
+    }
+
+    @PreDestroy
+    void shutdown() {
+        rehashWriter.shutdown();
+    }
 
+    /**
+     * Change the password of an authenticated user.
+     * The principal is rebuilt from JWT claims and carries no password hash, so the old password
+     * is verified against the database copy. Bumps the token version, revoking all earlier tokens.
+     *
+     * @return the updated user, used to issue a fresh token
+     */
+    public User changePassword(User user, String oldPassword, String newPassword) {
         // Re-fetch user from database (ensure getting latest data)
         Long userId = user.getId();
         if (userId == null) {
             throw new UsernameNotFoundException("User id is missing");
         }
         User dbUser = userRepository.findById(userId)
-                .orElseThrow(() -> new UsernameNotFoundException("User not found"));
+                .orElseThrow(() -> {
+                    userCache.invalidate(user);
+                    return new UsernameNotFoundException("User not found");
+                });
+
+        // Verify old password
+        if (!passwordEncoder.matches(oldPassword, dbUser.getPassword())) {
+            throw new IllegalArgumentException("Old password is incorrect");
+        }
 
         // Set new password
         dbUser.setPassword(passwordEncoder.encode(newPassword));
@@ -61,7 +162,30 @@ public class UserService implements UserDetailsService {
         dbUser.setPasswordChanged(true);
         dbUser.setLoginCountWithoutChange(0);
 
-        userRepository.save(dbUser);
+        return saveWithNewTokenVersion(dbUser);
+    }
+
+    /**
+     * Replace the password after the caller has verified the old one (forced password change flow),
+     * unlock the account and revoke all earlier tokens.
+     *
+     * @return the updated user, used to issue a fresh token
+     */
+    public User resetPassword(@NonNull User user, String newPassword) {
+        user.setPassword(passwordEncoder.encode(newPassword));
+        user.setPasswordChanged(true);
+        user.setLoginCountWithoutChange(0);
+        user.setEnabled(true);
+        return saveWithNewTokenVersion(user);
     }
-}
 
+    /**
+     * Persist the user with an incremented token version, which {@link #save(User)} publishes to the
+     * in-memory version table.
+     */
+    private User saveWithNewTokenVersion(User user) {
+        int currentVersion = user.getTokenVersion() != null ? user.getTokenVersion() : 0;
+        user.setTokenVersion(currentVersion + 1);
+        return save(user);
+    }
+}
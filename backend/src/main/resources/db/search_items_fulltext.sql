@@ -0,0 +1,6 @@
+-- FULLTEXT index for search.mode=fulltext, using the InnoDB ngram parser (MySQL 5.7.6+).
+-- Applied at startup in fulltext mode when the index is missing; can also be run by hand beforehand,
+-- which is preferable on large tables since building the index rewrites search_items.
+-- Token length follows the server's ngram_token_size (default 2).
+ALTER TABLE search_items
+    ADD FULLTEXT INDEX ft_search_items_title_description (title, description) WITH PARSER ngram;
@@ -0,0 +1,48 @@
+package com.bcbbs.backend.captcha;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Races several threads consuming the same captcha, all released at once.
+ */
+final class CaptchaRace {
+
+    private CaptchaRace() {
+    }
+
+    /**
+     * @return how many of the concurrent {@link CaptchaStore#consume} calls succeeded
+     */
+    static int consumeConcurrently(CaptchaStore store, String token, String code, int threads) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            CountDownLatch ready = new CountDownLatch(threads);
+            CountDownLatch start = new CountDownLatch(1);
+            List<Future<Boolean>> results = new ArrayList<>(threads);
+            for (int i = 0; i < threads; i++) {
+                results.add(executor.submit(() -> {
+                    ready.countDown();
+                    start.await();
+                    return store.consume(token, code);
+                }));
+            }
+            ready.await(10, TimeUnit.SECONDS);
+            start.countDown();
+            int successes = 0;
+            for (Future<Boolean> result : results) {
+                if (result.get(30, TimeUnit.SECONDS)) {
+                    successes++;
+                }
+            }
+            return successes;
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+}
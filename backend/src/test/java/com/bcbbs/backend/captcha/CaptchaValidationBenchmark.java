@@ -0,0 +1,134 @@
+package com.bcbbs.backend.captcha;
+
+import com.bcbbs.backend.entity.CaptchaToken;
+import com.bcbbs.backend.repository.CaptchaTokenRepository;
+import org.junit.jupiter.api.Test;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.autoconfigure.ImportAutoConfiguration;
+import org.springframework.boot.autoconfigure.domain.EntityScan;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceAutoConfiguration;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernateJpaAutoConfiguration;
+import org.springframework.boot.autoconfigure.transaction.TransactionAutoConfiguration;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.data.jpa.repository.config.EnableJpaRepositories;
+
+import java.time.Instant;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Throughput of a captcha round trip - issue, then validate (consume) with the right code - per store:
+ * <ul>
+ *     <li>{@code inMemory} - {@link InMemoryCaptchaStore}, sharded map plus timing wheel</li>
+ *     <li>{@code signed} - {@link SignedCaptchaStore}, HMAC token plus replay filter, no shared state per token</li>
+ *     <li>{@code jpa} - {@link JpaCaptchaStore}, INSERT plus the guarded consume UPDATE, against H2 in MySQL mode;
+ *     a lower bound for MySQL, which adds a network round trip per statement</li>
+ * </ul>
+ * Not part of the regular test run; start it with
+ * {@code mvn test -Dtest=CaptchaValidationBenchmark -Dsurefire.failIfNoSpecifiedTests=false}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Threads(2)
+@Fork(1)
+public class CaptchaValidationBenchmark {
+
+    private static final String CODE = "AB12";
+
+    private InMemoryCaptchaStore inMemoryStore;
+    private SignedCaptchaStore signedStore;
+
+    @Setup
+    public void setUp() {
+        inMemoryStore = new InMemoryCaptchaStore(16);
+        signedStore = new SignedCaptchaStore("", 300_000, 24);
+    }
+
+    @Setup(Level.Iteration)
+    public void expire() {
+        // Consumed captchas stay on the timing wheel until they expire; clear them between iterations
+        inMemoryStore.expire();
+    }
+
+    @Benchmark
+    public boolean inMemory() {
+        return inMemoryStore.consume(inMemoryStore.issue(CODE, Instant.now().plusSeconds(1)), CODE);
+    }
+
+    @Benchmark
+    public boolean signed() {
+        return signedStore.consume(signedStore.issue(CODE, Instant.now().plusSeconds(1)), CODE);
+    }
+
+    @Benchmark
+    public boolean jpa(JpaState state) {
+        return state.store.consume(state.store.issue(CODE, Instant.now().plusSeconds(1)), CODE);
+    }
+
+    /**
+     * JPA and an in-memory H2 database only, without the rest of the application.
+     */
+    @State(Scope.Benchmark)
+    public static class JpaState {
+
+        private ConfigurableApplicationContext context;
+        private JpaCaptchaStore store;
+
+        @Setup
+        public void setUp() {
+            // Command-line arguments, so they win over application.yml
+            context = new SpringApplicationBuilder(JpaConfig.class)
+                    .web(WebApplicationType.NONE)
+                    .run("--spring.datasource.url=jdbc:h2:mem:captcha-bench;MODE=MySQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1",
+                            "--spring.datasource.driver-class-name=org.h2.Driver",
+                            "--spring.datasource.username=sa",
+                            "--spring.datasource.password=",
+                            "--spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect",
+                            "--spring.jpa.hibernate.ddl-auto=create-drop",
+                            "--spring.jpa.show-sql=false",
+                            "--logging.level.org.hibernate.SQL=WARN",
+                            "--logging.level.org.hibernate.type.descriptor.sql.BasicBinder=WARN");
+            store = new JpaCaptchaStore(context.getBean(CaptchaTokenRepository.class));
+        }
+
+        @TearDown
+        public void tearDown() {
+            context.close();
+        }
+    }
+
+    // Not a @Configuration, so component scans of the application's tests never pick it up
+    @ImportAutoConfiguration({DataSourceAutoConfiguration.class, HibernateJpaAutoConfiguration.class,
+            TransactionAutoConfiguration.class})
+    @EntityScan(basePackageClasses = CaptchaToken.class)
+    @EnableJpaRepositories(basePackageClasses = CaptchaTokenRepository.class)
+    static class JpaConfig {
+    }
+
+    @Test
+    void run() throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(CaptchaValidationBenchmark.class.getSimpleName())
+                .build())
+                .run();
+    }
+}
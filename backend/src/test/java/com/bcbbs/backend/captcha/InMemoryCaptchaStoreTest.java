@@ -0,0 +1,42 @@
+package com.bcbbs.backend.captcha;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Instant;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class InMemoryCaptchaStoreTest {
+
+    private static final int THREADS = 16;
+    private static final int ROUNDS = 200;
+
+    private final InMemoryCaptchaStore store = new InMemoryCaptchaStore(16);
+
+    @Test
+    void concurrentConsumersConsumeEachCaptchaExactlyOnce() throws Exception {
+        for (int round = 0; round < ROUNDS; round++) {
+            String token = store.issue("AB12", Instant.now().plusSeconds(300));
+
+            assertThat(CaptchaRace.consumeConcurrently(store, token, "AB12", THREADS))
+                    .as("successful consumptions in round %d", round)
+                    .isEqualTo(1);
+        }
+    }
+
+    @Test
+    void wrongCodeDoesNotConsumeCaptcha() {
+        String token = store.issue("AB12", Instant.now().plusSeconds(300));
+
+        assertThat(store.consume(token, "ZZ99")).isFalse();
+        assertThat(store.consume(token, "AB12")).isTrue();
+        assertThat(store.consume(token, "AB12")).isFalse();
+    }
+
+    @Test
+    void expiredCaptchaIsRejected() {
+        String token = store.issue("AB12", Instant.now().minusSeconds(1));
+
+        assertThat(store.consume(token, "AB12")).isFalse();
+    }
+}
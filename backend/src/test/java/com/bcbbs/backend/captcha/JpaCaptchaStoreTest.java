@@ -0,0 +1,82 @@
+package com.bcbbs.backend.captcha;
+
+import com.bcbbs.backend.repository.CaptchaTokenRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Instant;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Runs the guarded consume UPDATE against a real database (H2 in MySQL mode), with every
+ * racing thread in its own transaction.
+ */
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@TestPropertySource(properties = {
+        "spring.datasource.url=jdbc:h2:mem:captcha;MODE=MySQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1",
+        "spring.datasource.driver-class-name=org.h2.Driver",
+        "spring.datasource.username=sa",
+        "spring.datasource.password=",
+        "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect",
+        "spring.jpa.hibernate.ddl-auto=create-drop",
+        "spring.jpa.show-sql=false"
+})
+// Each consume must commit on its own, as in production, not join a test transaction
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class JpaCaptchaStoreTest {
+
+    private static final int THREADS = 16;
+    private static final int ROUNDS = 50;
+
+    @Autowired
+    private CaptchaTokenRepository captchaTokenRepository;
+
+    private JpaCaptchaStore store;
+
+    @BeforeEach
+    void setUp() {
+        captchaTokenRepository.deleteAll();
+        store = new JpaCaptchaStore(captchaTokenRepository);
+    }
+
+    @Test
+    void concurrentConsumersConsumeEachCaptchaExactlyOnce() throws Exception {
+        for (int round = 0; round < ROUNDS; round++) {
+            String token = store.issue("AB12", Instant.now().plusSeconds(300));
+
+            assertThat(CaptchaRace.consumeConcurrently(store, token, "AB12", THREADS))
+                    .as("successful consumptions in round %d", round)
+                    .isEqualTo(1);
+            assertThat(captchaTokenRepository.findById(token)).hasValueSatisfying(row -> assertThat(row.getUsed()).isTrue());
+        }
+    }
+
+    @Test
+    void wrongCodeDoesNotConsumeCaptcha() {
+        String token = store.issue("AB12", Instant.now().plusSeconds(300));
+
+        assertThat(store.consume(token, "ZZ99")).isFalse();
+        assertThat(store.consume(token, "AB12")).isTrue();
+        assertThat(store.consume(token, "AB12")).isFalse();
+    }
+
+    @Test
+    void expiredCaptchaIsRejected() {
+        String token = store.issue("AB12", Instant.now().minusSeconds(1));
+
+        assertThat(store.consume(token, "AB12")).isFalse();
+    }
+
+    @Test
+    void unknownTokenIsRejected() {
+        assertThat(store.consume("missing", "AB12")).isFalse();
+    }
+}
@@ -0,0 +1,170 @@
+package com.bcbbs.backend.controller;
+
+import com.bcbbs.backend.config.GlobalExceptionHandler;
+import com.bcbbs.backend.dto.ApiResponse;
+import com.bcbbs.backend.dto.LineDeltaResponse;
+import com.bcbbs.backend.dto.LineResponse;
+import com.bcbbs.backend.entity.AccessLine;
+import com.bcbbs.backend.lines.LatencyReportThrottle;
+import com.bcbbs.backend.lines.LineDeltaEvent;
+import com.bcbbs.backend.lines.LinePreferenceTable;
+import com.bcbbs.backend.lines.LineSnapshot;
+import com.bcbbs.backend.lines.LineStreamBroadcaster;
+import com.bcbbs.backend.search.SuggestIndex;
+import com.bcbbs.backend.service.AccessLineService;
+import com.bcbbs.backend.service.CaptchaService;
+import com.bcbbs.backend.service.SearchService;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.MediaType;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+class PublicControllerStreamTest {
+
+    private static final String SNAPSHOT_JSON = "{\"code\":200,\"data\":[]}";
+
+    private final AccessLineService accessLineService = mock(AccessLineService.class);
+    private final LinePreferenceTable linePreferenceTable = mock(LinePreferenceTable.class);
+
+    @Test
+    void streamStartsWithSnapshotEvent() throws Exception {
+        when(accessLineService.getSnapshot(any(AccessLine.LineType.class), any())).thenReturn(snapshot());
+        MockMvc mockMvc = mockMvc(broadcaster(10));
+
+        MvcResult result = mockMvc.perform(get("/api/public/lines/stream")
+                        .param("type", "member")
+                        .accept(MediaType.TEXT_EVENT_STREAM))
+                .andExpect(request().asyncStarted())
+                .andExpect(status().isOk())
+                .andReturn();
+
+        MockHttpServletResponse response = result.getResponse();
+        assertThat(response.getContentType()).startsWith(MediaType.TEXT_EVENT_STREAM_VALUE);
+        // Events are written by the broadcaster's sender threads
+        String content = awaitContent(response, "\n\n");
+        assertThat(content).startsWith("event:snapshot\ndata:" + SNAPSHOT_JSON + "\n\n");
+    }
+
+    @Test
+    void streamFollowsTheClientNetworksPreferredOrder() throws Exception {
+        List<Long> preferred = List.of(2L);
+        when(linePreferenceTable.preferredLines("10.1.2.3")).thenReturn(preferred);
+        when(accessLineService.getSnapshot(AccessLine.LineType.MEMBER, preferred))
+                .thenReturn(snapshot(line(2L), line(1L)));
+        LineStreamBroadcaster broadcaster = broadcaster(10);
+        MockMvc mockMvc = mockMvc(broadcaster);
+
+        MvcResult result = mockMvc.perform(get("/api/public/lines/stream")
+                        .param("type", "member")
+                        .with(request -> {
+                            request.setRemoteAddr("10.1.2.3");
+                            return request;
+                        })
+                        .accept(MediaType.TEXT_EVENT_STREAM))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        String content = awaitContent(result.getResponse(), "\n\n");
+        assertThat(content).contains("\"data\":[{\"id\":2,").contains("},{\"id\":1,");
+
+        // A new line 3 in display order 3, 1, 2; this client sees its preferred line first
+        when(accessLineService.getSnapshot(AccessLine.LineType.MEMBER, preferred))
+                .thenReturn(snapshot(line(2L), line(3L), line(1L)));
+        broadcaster.onLineDelta(new LineDeltaEvent(AccessLine.LineType.MEMBER, snapshot(line(3L), line(1L), line(2L)),
+                LineDeltaResponse.builder()
+                        .type("MEMBER")
+                        .updated(List.of(line(3L)))
+                        .removed(List.of())
+                        .order(List.of(3L, 1L, 2L))
+                        .build()));
+
+        content = awaitContent(result.getResponse(), "event:delta");
+        assertThat(content).contains("\"order\":[2,3,1]");
+    }
+
+    @Test
+    void invalidTypeIsRejectedWithJsonError() throws Exception {
+        MockMvc mockMvc = mockMvc(broadcaster(10));
+
+        mockMvc.perform(get("/api/public/lines/stream")
+                        .param("type", "nope")
+                        .accept(MediaType.TEXT_EVENT_STREAM))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.code").value(400))
+                .andExpect(jsonPath("$.message").value("Invalid line type"));
+    }
+
+    @Test
+    void streamsBeyondTheLimitAreRejectedAsUnavailable() throws Exception {
+        MockMvc mockMvc = mockMvc(broadcaster(0));
+
+        mockMvc.perform(get("/api/public/lines/stream")
+                        .param("type", "member")
+                        .accept(MediaType.TEXT_EVENT_STREAM))
+                .andExpect(status().isServiceUnavailable())
+                .andExpect(jsonPath("$.code").value(503));
+    }
+
+    private MockMvc mockMvc(LineStreamBroadcaster broadcaster) {
+        PublicController controller = new PublicController(accessLineService, broadcaster,
+                linePreferenceTable, mock(LatencyReportThrottle.class), mock(SearchService.class),
+                mock(SuggestIndex.class), mock(CaptchaService.class));
+        return MockMvcBuilders.standaloneSetup(controller)
+                .setControllerAdvice(new GlobalExceptionHandler())
+                .build();
+    }
+
+    private LineStreamBroadcaster broadcaster(int maxSubscribers) {
+        return new LineStreamBroadcaster(accessLineService, new ObjectMapper(), new SimpleMeterRegistry(),
+                60_000, 16, maxSubscribers, 1, 5000, 1);
+    }
+
+    private static LineSnapshot snapshot() {
+        return new LineSnapshot(AccessLine.LineType.MEMBER, List.of(),
+                SNAPSHOT_JSON.getBytes(StandardCharsets.UTF_8), "\"1\"", Instant.now());
+    }
+
+    private static LineSnapshot snapshot(LineResponse... lines) throws Exception {
+        byte[] body = new ObjectMapper().writeValueAsBytes(ApiResponse.success(List.of(lines)));
+        return new LineSnapshot(AccessLine.LineType.MEMBER, List.of(lines), body, "\"2\"", Instant.now());
+    }
+
+    private static LineResponse line(Long id) {
+        return LineResponse.builder()
+                .id(id)
+                .name("Line " + id)
+                .url("https://line" + id + ".example.com")
+                .type("MEMBER")
+                .build();
+    }
+
+    /**
+     * Response content once it contains the marker, or whatever was written within 5 seconds.
+     */
+    private static String awaitContent(MockHttpServletResponse response, String marker) throws Exception {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        String content = response.getContentAsString();
+        while (!content.contains(marker) && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+            content = response.getContentAsString();
+        }
+        return content;
+    }
+}
@@ -0,0 +1,96 @@
+package com.bcbbs.backend.lines;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class CidrTrieTest {
+
+    @Test
+    void longestPrefixWins() {
+        CidrTrie trie = new CidrTrie.Builder()
+                .add("10.0.0.0/8", 1)
+                .add("10.1.0.0/16", 2)
+                .add("10.1.2.0/24", 3)
+                .build();
+
+        assertThat(trie.lookup("10.1.2.3")).isEqualTo(3);
+        assertThat(trie.lookup("10.1.3.3")).isEqualTo(2);
+        assertThat(trie.lookup("10.2.0.1")).isEqualTo(1);
+        assertThat(trie.lookup("11.0.0.1")).isEqualTo(-1);
+        assertThat(trie.size()).isEqualTo(3);
+    }
+
+    @Test
+    void zeroLengthBlockMatchesEverything() {
+        CidrTrie trie = new CidrTrie.Builder()
+                .add("0.0.0.0/0", 1)
+                .add("192.168.0.0/16", 2)
+                .build();
+
+        assertThat(trie.lookup("8.8.8.8")).isEqualTo(1);
+        assertThat(trie.lookup("255.255.255.255")).isEqualTo(1);
+        assertThat(trie.lookup("192.168.1.1")).isEqualTo(2);
+    }
+
+    @Test
+    void fullLengthBlockMatchesOneAddress() {
+        CidrTrie trie = new CidrTrie.Builder()
+                .add("203.0.113.7/32", 1)
+                .add("203.0.113.8", 2)
+                .build();
+
+        assertThat(trie.lookup("203.0.113.7")).isEqualTo(1);
+        assertThat(trie.lookup("203.0.113.8")).isEqualTo(2);
+        assertThat(trie.lookup("203.0.113.6")).isEqualTo(-1);
+        assertThat(trie.lookup("203.0.113.9")).isEqualTo(-1);
+    }
+
+    @Test
+    void hostBitsBeyondThePrefixAreIgnored() {
+        CidrTrie trie = new CidrTrie.Builder()
+                .add("10.1.2.3/8", 1)
+                .add("10.0.0.0/8", 2)
+                .build();
+
+        // Both name the same block, so the second replaces the first
+        assertThat(trie.size()).isEqualTo(1);
+        assertThat(trie.lookup("10.200.0.1")).isEqualTo(2);
+    }
+
+    @Test
+    void ipv4MappedIpv6AddressesAreLookedUpAsIpv4() {
+        CidrTrie trie = new CidrTrie.Builder().add("1.2.3.0/24", 1).build();
+
+        assertThat(trie.lookup("::ffff:1.2.3.4")).isEqualTo(1);
+        assertThat(trie.lookup("::1")).isEqualTo(-1);
+        assertThat(trie.lookup("2001:db8::1")).isEqualTo(-1);
+    }
+
+    @Test
+    void addressesParseToUnsignedValues() {
+        assertThat(CidrTrie.parseAddress("0.0.0.0")).isZero();
+        assertThat(CidrTrie.parseAddress("1.2.3.4")).isEqualTo(0x01020304L);
+        assertThat(CidrTrie.parseAddress("255.255.255.255")).isEqualTo(0xFFFFFFFFL);
+    }
+
+    @Test
+    void malformedAddressesDoNotParse() {
+        for (String text : new String[]{"1.2.3", "256.0.0.1", "1..2.3", "1.2.3.4.5", "1.2.3.", ".1.2.3", "a.b.c.d", ""}) {
+            assertThat(CidrTrie.parseAddress(text)).as(text).isEqualTo(-1);
+        }
+        assertThat(CidrTrie.parseAddress(null)).isEqualTo(-1);
+        assertThat(CidrTrie.EMPTY.lookup("1.2.3")).isEqualTo(-1);
+    }
+
+    @Test
+    void malformedBlocksAreRejected() {
+        CidrTrie.Builder builder = new CidrTrie.Builder();
+        for (String cidr : new String[]{"1.2.3/8", "256.0.0.1/32", "1..2.3/8", "10.0.0.0/33", "10.0.0.0/-1",
+                "10.0.0.0/x", "::ffff:10.0.0.0/8"}) {
+            assertThatThrownBy(() -> builder.add(cidr, 1)).as(cidr).isInstanceOf(IllegalArgumentException.class);
+        }
+        assertThat(builder.build().size()).isZero();
+    }
+}
@@ -0,0 +1,48 @@
+package com.bcbbs.backend.lines;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class LatencyHistogramTest {
+
+    private static final long SLOT_MS = 60_000;
+
+    @Test
+    void clientSamplesAreCappedRelativeToProbeSamples() {
+        LatencyHistogram histogram = new LatencyHistogram(10, SLOT_MS, 1.0);
+        long now = 10 * SLOT_MS;
+
+        // No probe samples yet: nothing to weigh client samples against
+        assertThat(histogram.recordClient(5, now)).isFalse();
+
+        histogram.recordProbe(100, now);
+        histogram.recordProbe(100, now);
+        assertThat(histogram.recordClient(5, now)).isTrue();
+        assertThat(histogram.recordClient(5, now)).isTrue();
+        assertThat(histogram.recordClient(5, now)).isFalse();
+
+        LatencyHistogram.Summary summary = histogram.summarize(now);
+        assertThat(summary.samples()).isEqualTo(4);
+        assertThat(summary.failures()).isZero();
+    }
+
+    @Test
+    void capFollowsTheWindow() {
+        LatencyHistogram histogram = new LatencyHistogram(2, SLOT_MS, 1.0);
+        long start = 10 * SLOT_MS;
+        histogram.recordProbe(100, start);
+        assertThat(histogram.recordClient(null, start)).isTrue();
+        assertThat(histogram.recordClient(null, start)).isFalse();
+
+        // Two slots later the first slot has left the window, its probe sample with it
+        long later = start + 2 * SLOT_MS;
+        assertThat(histogram.recordClient(null, later)).isFalse();
+        histogram.recordProbe(100, later);
+        assertThat(histogram.recordClient(null, later)).isTrue();
+
+        LatencyHistogram.Summary summary = histogram.summarize(later);
+        assertThat(summary.samples()).isEqualTo(1);
+        assertThat(summary.failures()).isEqualTo(1);
+    }
+}
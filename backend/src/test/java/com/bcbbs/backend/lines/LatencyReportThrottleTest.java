@@ -0,0 +1,59 @@
+package com.bcbbs.backend.lines;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class LatencyReportThrottleTest {
+
+    private static LatencyReportThrottle throttle(int limit, int lineSamples) {
+        return new LatencyReportThrottle(limit, 60_000, 1000, lineSamples, 10, 60_000, List.of("127.0.0.1"));
+    }
+
+    private static MockHttpServletRequest request(String remoteAddr, String forwardedFor) {
+        MockHttpServletRequest request = new MockHttpServletRequest();
+        request.setRemoteAddr(remoteAddr);
+        if (forwardedFor != null) {
+            request.addHeader("X-Forwarded-For", forwardedFor);
+        }
+        return request;
+    }
+
+    @Test
+    void forwardedForIsIgnoredFromUntrustedPeers() {
+        LatencyReportThrottle throttle = throttle(6, 1);
+        assertThat(throttle.clientIp(request("203.0.113.7", "198.51.100.1"))).isEqualTo("203.0.113.7");
+        assertThat(throttle.clientIp(request("203.0.113.7", null))).isEqualTo("203.0.113.7");
+    }
+
+    @Test
+    void forwardedForIsFollowedThroughTrustedProxiesOnly() {
+        LatencyReportThrottle throttle = throttle(6, 1);
+        // The client prepended a made-up hop; the proxy appended the address it saw
+        assertThat(throttle.clientIp(request("127.0.0.1", "198.51.100.1, 203.0.113.7"))).isEqualTo("203.0.113.7");
+        assertThat(throttle.clientIp(request("127.0.0.1", "203.0.113.7"))).isEqualTo("203.0.113.7");
+        assertThat(throttle.clientIp(request("127.0.0.1", null))).isEqualTo("127.0.0.1");
+    }
+
+    @Test
+    void reportsAreLimitedPerClient() {
+        LatencyReportThrottle throttle = throttle(2, 1);
+        assertThat(throttle.tryAcquire("203.0.113.7")).isTrue();
+        assertThat(throttle.tryAcquire("203.0.113.7")).isTrue();
+        assertThat(throttle.tryAcquire("203.0.113.7")).isFalse();
+        assertThat(throttle.tryAcquire("203.0.113.8")).isTrue();
+    }
+
+    @Test
+    void samplesAreLimitedPerClientAndLine() {
+        LatencyReportThrottle throttle = throttle(6, 2);
+        assertThat(throttle.tryAcquireSample("203.0.113.7", 1)).isTrue();
+        assertThat(throttle.tryAcquireSample("203.0.113.7", 1)).isTrue();
+        assertThat(throttle.tryAcquireSample("203.0.113.7", 1)).isFalse();
+        assertThat(throttle.tryAcquireSample("203.0.113.7", 2)).isTrue();
+        assertThat(throttle.tryAcquireSample("203.0.113.8", 1)).isTrue();
+    }
+}
@@ -0,0 +1,129 @@
+package com.bcbbs.backend.lines;
+
+import com.bcbbs.backend.entity.AccessLine;
+import com.sun.net.httpserver.HttpServer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Probes a local stub server whose endpoints answer at once, too late, with 404 or not at all.
+ */
+class LineLatencyProberTest {
+
+    private static final long TIMEOUT_MS = 500;
+    // LineLatencyProber waits this long past the request timeout for the last responses
+    private static final long COMPLETION_GRACE_MS = 1000;
+
+    private HttpServer server;
+    private ExecutorService serverExecutor;
+    private final CountDownLatch release = new CountDownLatch(1);
+    private String baseUrl;
+
+    @BeforeEach
+    void startServer() throws IOException {
+        server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        server.createContext("/fast", exchange -> {
+            exchange.sendResponseHeaders(200, -1);
+            exchange.close();
+        });
+        server.createContext("/slow", exchange -> {
+            try {
+                // Held past the probe timeout, released when the test ends
+                release.await(10, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            exchange.sendResponseHeaders(200, -1);
+            exchange.close();
+        });
+        server.createContext("/missing", exchange -> {
+            exchange.sendResponseHeaders(404, -1);
+            exchange.close();
+        });
+        serverExecutor = Executors.newCachedThreadPool();
+        server.setExecutor(serverExecutor);
+        server.start();
+        baseUrl = "http://127.0.0.1:" + server.getAddress().getPort();
+    }
+
+    @AfterEach
+    void stopServer() {
+        release.countDown();
+        server.stop(0);
+        serverExecutor.shutdownNow();
+    }
+
+    @Test
+    void reportsLatencyForReachableLinesAndNullForTheRest() throws IOException {
+        LineLatencyProber prober = new LineLatencyProber(null, null, null, new SimpleMeterRegistry(), TIMEOUT_MS, 16);
+        List<AccessLine> lines = List.of(
+                line(1L, baseUrl + "/fast"),
+                line(2L, baseUrl + "/slow"),
+                line(3L, baseUrl + "/missing"),
+                line(4L, "http://127.0.0.1:" + unusedPort() + "/"),
+                line(5L, "not a url"));
+
+        long start = System.nanoTime();
+        Map<Long, Integer> latencies = prober.probe(lines);
+        long elapsedMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+        assertThat(latencies).containsOnlyKeys(1L, 2L, 3L, 4L, 5L);
+        assertThat(latencies.get(1L)).isBetween(1, (int) TIMEOUT_MS);
+        // Any HTTP status counts as reachable
+        assertThat(latencies.get(3L)).isBetween(1, (int) TIMEOUT_MS);
+        assertThat(latencies.get(2L)).isNull();
+        assertThat(latencies.get(4L)).isNull();
+        assertThat(latencies.get(5L)).isNull();
+        assertThat(elapsedMs).isLessThan(TIMEOUT_MS + COMPLETION_GRACE_MS);
+    }
+
+    @Test
+    void aRoundOfSlowLinesTakesAboutOneTimeout() {
+        LineLatencyProber prober = new LineLatencyProber(null, null, null, new SimpleMeterRegistry(), TIMEOUT_MS, 16);
+        List<AccessLine> lines = List.of(
+                line(1L, baseUrl + "/slow"),
+                line(2L, baseUrl + "/slow"),
+                line(3L, baseUrl + "/slow"),
+                line(4L, baseUrl + "/slow"));
+
+        long start = System.nanoTime();
+        Map<Long, Integer> latencies = prober.probe(lines);
+        long elapsedMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+        assertThat(latencies).containsOnlyKeys(1L, 2L, 3L, 4L).allSatisfy((id, latency) -> assertThat(latency).isNull());
+        // Probed concurrently, not one timeout after another
+        assertThat(elapsedMs).isLessThan(TIMEOUT_MS + COMPLETION_GRACE_MS);
+    }
+
+    private static AccessLine line(Long id, String url) {
+        return AccessLine.builder()
+                .id(id)
+                .name("line-" + id)
+                .url(url)
+                .build();
+    }
+
+    /**
+     * A local port nothing listens on, so connections are refused.
+     */
+    private static int unusedPort() throws IOException {
+        try (ServerSocket socket = new ServerSocket(0, 1, InetAddress.getLoopbackAddress())) {
+            return socket.getLocalPort();
+        }
+    }
+}
@@ -0,0 +1,147 @@
+package com.bcbbs.backend.lines;
+
+import com.bcbbs.backend.entity.AccessLine;
+import com.bcbbs.backend.service.AccessLineService;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyEmitter.DataWithMediaType;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class LineStreamBroadcasterTest {
+
+    private final AccessLineService accessLineService = mock(AccessLineService.class);
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    // Handed out by subscribe(), in order
+    private final Queue<TestEmitter> emitters = new ConcurrentLinkedQueue<>();
+    private final List<TestEmitter> created = new ArrayList<>();
+    private LineStreamBroadcaster broadcaster;
+
+    @AfterEach
+    void tearDown() {
+        created.forEach(emitter -> emitter.release.countDown());
+        if (broadcaster != null) {
+            broadcaster.shutdown();
+        }
+    }
+
+    @Test
+    void subscriberFallingBehindIsDroppedAndCompleted() throws Exception {
+        broadcaster = broadcaster(2, 60_000);
+        TestEmitter slow = emitter(true);
+        broadcaster.subscribe(AccessLine.LineType.MEMBER, null);
+        // The sender holds the snapshot; the queue has room for two more events
+        assertThat(slow.sending.await(1, TimeUnit.SECONDS)).isTrue();
+
+        broadcaster.heartbeat();
+        broadcaster.heartbeat();
+        assertThat(meterRegistry.counter("lines.stream.dropped").count()).isZero();
+        broadcaster.heartbeat();
+
+        assertThat(meterRegistry.counter("lines.stream.dropped").count()).isEqualTo(1);
+        assertThat(subscribers()).isZero();
+        // Completed by the sender once the send in progress returns, with nothing else sent
+        assertThat(slow.completed.getCount()).isEqualTo(1);
+        slow.release.countDown();
+        assertThat(slow.completed.await(1, TimeUnit.SECONDS)).isTrue();
+        assertThat(slow.sent).hasSize(1);
+    }
+
+    @Test
+    void stalledSubscriberIsEvictedWithoutStarvingOthers() throws Exception {
+        broadcaster = broadcaster(16, 50);
+        TestEmitter stalled = emitter(true);
+        broadcaster.subscribe(AccessLine.LineType.MEMBER, null);
+        assertThat(stalled.sending.await(1, TimeUnit.SECONDS)).isTrue();
+
+        Thread.sleep(100);
+        broadcaster.evictStalled();
+
+        assertThat(meterRegistry.counter("lines.stream.stalled").count()).isEqualTo(1);
+        assertThat(subscribers()).isZero();
+
+        // The only regular sender is stuck; a stand-in serves the next subscriber
+        TestEmitter healthy = emitter(false);
+        broadcaster.subscribe(AccessLine.LineType.MEMBER, null);
+        assertThat(healthy.sending.await(1, TimeUnit.SECONDS)).isTrue();
+
+        stalled.release.countDown();
+        assertThat(stalled.completed.await(1, TimeUnit.SECONDS)).isTrue();
+    }
+
+    private LineStreamBroadcaster broadcaster(int queueCapacity, long sendTimeoutMillis) {
+        when(accessLineService.getSnapshot(any(AccessLine.LineType.class), any())).thenReturn(snapshot());
+        return new LineStreamBroadcaster(accessLineService, new ObjectMapper(), meterRegistry,
+                60_000, queueCapacity, 10, 1, sendTimeoutMillis, 1) {
+            @Override
+            SseEmitter createEmitter(long timeoutMillis) {
+                return emitters.remove();
+            }
+        };
+    }
+
+    private TestEmitter emitter(boolean blocking) {
+        TestEmitter emitter = new TestEmitter();
+        if (!blocking) {
+            emitter.release.countDown();
+        }
+        emitters.add(emitter);
+        created.add(emitter);
+        return emitter;
+    }
+
+    private double subscribers() {
+        return meterRegistry.get("lines.stream.subscribers").gauge().value();
+    }
+
+    private static LineSnapshot snapshot() {
+        return new LineSnapshot(AccessLine.LineType.MEMBER, List.of(),
+                "{\"code\":200,\"data\":[]}".getBytes(StandardCharsets.UTF_8), "\"1\"", Instant.now());
+    }
+
+    /**
+     * Emitter whose sends block until released, like a write to a client that stopped reading.
+     */
+    private static final class TestEmitter extends SseEmitter {
+
+        private final CountDownLatch sending = new CountDownLatch(1);
+        private final CountDownLatch release = new CountDownLatch(1);
+        private final CountDownLatch completed = new CountDownLatch(1);
+        private final Queue<Set<DataWithMediaType>> sent = new ConcurrentLinkedQueue<>();
+
+        @Override
+        public void send(Set<DataWithMediaType> items) throws IOException {
+            sending.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IOException(e);
+            }
+            sent.add(items);
+        }
+
+        @Override
+        public void complete() {
+            completed.countDown();
+            super.complete();
+        }
+    }
+}
@@ -0,0 +1,60 @@
+package com.bcbbs.backend.search;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class CsvRecordReaderTest {
+
+    @Test
+    void readsQuotedFieldsWithEscapesAndLineBreaks() throws IOException {
+        CsvRecordReader reader = new CsvRecordReader(new StringReader("a,\"b \"\"c\"\"\",\"d\r\ne\"\r\nf,,\"\"\n"));
+
+        assertThat(reader.next()).containsExactly("a", "b \"c\"", "d\r\ne");
+        assertThat(reader.next()).containsExactly("f", "", "");
+        assertThat(reader.next()).isNull();
+    }
+
+    @Test
+    void reportsRecordLinesAfterBlankLines() throws IOException {
+        CsvRecordReader reader = new CsvRecordReader(new StringReader("h1,h2\n\n\r\nx,\"multi\nline\"\n\ny,z"));
+
+        assertThat(reader.next()).containsExactly("h1", "h2");
+        assertThat(reader.recordLine()).isEqualTo(1);
+        assertThat(reader.next()).containsExactly("x", "multi\nline");
+        assertThat(reader.recordLine()).isEqualTo(4);
+        assertThat(reader.next()).containsExactly("y", "z");
+        assertThat(reader.recordLine()).isEqualTo(7);
+    }
+
+    @Test
+    void rejectsTextAfterClosingQuote() {
+        CsvRecordReader reader = new CsvRecordReader(new StringReader("a,\"b\"c,d\n"));
+
+        assertThatThrownBy(reader::next)
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("after closing quote");
+    }
+
+    @Test
+    void acceptsClosingQuoteAtEndOfInput() throws IOException {
+        CsvRecordReader reader = new CsvRecordReader(new StringReader("\"a\""));
+
+        assertThat(reader.next()).isEqualTo(List.of("a"));
+        assertThat(reader.next()).isNull();
+    }
+
+    @Test
+    void rejectsUnterminatedQuotedField() {
+        CsvRecordReader reader = new CsvRecordReader(new StringReader("\"abc\n"));
+
+        assertThatThrownBy(reader::next)
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("Unterminated");
+    }
+}
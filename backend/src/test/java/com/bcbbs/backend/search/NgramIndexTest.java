@@ -0,0 +1,37 @@
+package com.bcbbs.backend.search;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class NgramIndexTest {
+
+    @Test
+    void pinyinMatchDoesNotAddToATextMatchInTheSameTitle() {
+        NgramIndex index = new NgramIndex();
+        index.put(new SearchDocument(1L, "abc guide", null, "https://a"));
+        index.put(new SearchDocument(2L, "abc notes", null, "https://b"));
+        String query = SearchText.normalize("abc");
+
+        // Both titles contain the query; only document 1 is also reported as a pinyin match
+        List<NgramIndex.Hit> hits = index.searchTopK(query, new long[]{1L}, null, 0, 10);
+
+        assertThat(hits).hasSize(2);
+        assertThat(hits.get(0).score()).isEqualTo(hits.get(1).score());
+    }
+
+    @Test
+    void pinyinOnlyMatchCountsAsOneTitleOccurrence() {
+        NgramIndex index = new NgramIndex();
+        index.put(new SearchDocument(1L, "abc", null, "https://a"));
+        index.put(new SearchDocument(2L, "xyz", null, "https://b"));
+        String query = SearchText.normalize("abc");
+
+        List<NgramIndex.Hit> hits = index.searchTopK(query, new long[]{2L}, null, 0, 10);
+
+        assertThat(hits).extracting(hit -> hit.document().id()).containsExactlyInAnyOrder(1L, 2L);
+        assertThat(hits.get(0).score()).isEqualTo(hits.get(1).score());
+    }
+}
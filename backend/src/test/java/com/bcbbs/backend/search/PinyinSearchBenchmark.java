@@ -0,0 +1,108 @@
+package com.bcbbs.backend.search;
+
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.function.Function;
+
+/**
+ * Compares {@link PinyinIndex} lookups with a plain substring scan over the same precomputed
+ * pinyin strings at 10k, 100k and 1M synthetic titles. Runs entirely in memory; the 1M step
+ * needs a heap of about 2 GB. Not part of the regular test run; start it with
+ * <pre>
+ * mvn test -Dtest=PinyinSearchBenchmark -Dsurefire.failIfNoSpecifiedTests=false -DargLine=-Xmx2g
+ * </pre>
+ */
+class PinyinSearchBenchmark {
+
+    private static final Logger logger = LoggerFactory.getLogger(PinyinSearchBenchmark.class);
+
+    private static final int[] SIZES = {10_000, 100_000, 1_000_000};
+    private static final int QUERIES = 200;
+    private static final int WARMUP_QUERIES = 20;
+
+    private final Random random = new Random(42);
+
+    @Test
+    void run() {
+        List<SearchDocument> documents = new ArrayList<>();
+        // Scan baseline: the same forms, computed once, searched with String.contains
+        List<PinyinIndex.Transliteration> forms = new ArrayList<>();
+        for (int size : SIZES) {
+            while (documents.size() < size) {
+                SearchDocument document = new SearchDocument((long) documents.size() + 1, title(), null, null);
+                documents.add(document);
+                forms.add(PinyinIndex.transliterate(document.title()));
+            }
+            List<String> queries = queries(documents);
+
+            long start = System.nanoTime();
+            PinyinIndex index = PinyinIndex.build(documents);
+            logger.info("Pinyin index built - titles: {}, duration: {}ms",
+                    size, (System.nanoTime() - start) / 1_000_000);
+
+            measure(size, "index", queries, q -> index.match(q).length);
+            measure(size, "scan", queries, q -> {
+                int hits = 0;
+                for (PinyinIndex.Transliteration form : forms) {
+                    if (form.full().contains(q) || form.initials().contains(q)) {
+                        hits++;
+                    }
+                }
+                return hits;
+            });
+        }
+    }
+
+    /**
+     * Full pinyin of 2 characters or initials of 3 to 4, taken from random titles.
+     */
+    private List<String> queries(List<SearchDocument> documents) {
+        List<String> queries = new ArrayList<>(QUERIES);
+        while (queries.size() < QUERIES) {
+            String title = documents.get(random.nextInt(documents.size())).title();
+            boolean initials = queries.size() % 2 == 0;
+            int length = initials ? 3 + random.nextInt(2) : 2;
+            int offset = random.nextInt(title.length() - length + 1);
+            PinyinIndex.Transliteration form = PinyinIndex.transliterate(title.substring(offset, offset + length));
+            queries.add(initials ? form.initials() : form.full());
+        }
+        return queries;
+    }
+
+    private void measure(int size, String mode, List<String> queries, Function<String, Integer> search) {
+        for (int i = 0; i < WARMUP_QUERIES; i++) {
+            search.apply(queries.get(i % queries.size()));
+        }
+        long[] nanos = new long[queries.size()];
+        long hits = 0;
+        for (int i = 0; i < queries.size(); i++) {
+            long start = System.nanoTime();
+            hits += search.apply(queries.get(i));
+            nanos[i] = System.nanoTime() - start;
+        }
+        Arrays.sort(nanos);
+        double mean = Arrays.stream(nanos).average().orElse(0) / 1_000_000.0;
+        logger.info("Pinyin benchmark - titles: {}, mode: {}, mean: {}ms, p50: {}ms, p95: {}ms, avg hits: {}",
+                size, mode,
+                String.format("%.3f", mean),
+                String.format("%.3f", nanos[nanos.length / 2] / 1_000_000.0),
+                String.format("%.3f", nanos[(int) (nanos.length * 0.95)] / 1_000_000.0),
+                hits / queries.size());
+    }
+
+    private String title() {
+        int length = 8 + random.nextInt(13);
+        StringBuilder builder = new StringBuilder(length);
+        for (int i = 0; i < length; i++) {
+            builder.append(SearchBackendBenchmark.CHARACTERS.charAt(
+                    random.nextInt(SearchBackendBenchmark.CHARACTERS.length())));
+        }
+        return builder.toString();
+    }
+}
@@ -0,0 +1,133 @@
+package com.bcbbs.backend.search;
+
+import com.bcbbs.backend.repository.SearchItemRepository;
+import com.bcbbs.backend.service.SearchService;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.Limit;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.function.Function;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Compares the LIKE and FULLTEXT search paths at 10k, 100k and 1M rows, timing the first page as
+ * SearchService fetches it ({@code findPageContaining} and {@code findFulltextPage}).
+ * Seeds search_items with synthetic Chinese text, so it refuses to run on a table holding
+ * anything but its own rows. Not part of the regular test run; start it against a scratch database:
+ * <pre>
+ * mvn test -Dtest=SearchBackendBenchmark -Dsurefire.failIfNoSpecifiedTests=false \
+ *     -Dspring.datasource.url=jdbc:mysql://localhost:3306/search_bench?rewriteBatchedStatements=true
+ * </pre>
+ */
+@SpringBootTest(properties = "search.mode=fulltext")
+class SearchBackendBenchmark {
+
+    private static final Logger logger = LoggerFactory.getLogger(SearchBackendBenchmark.class);
+
+    private static final int[] SIZES = {10_000, 100_000, 1_000_000};
+    private static final int QUERIES = 200;
+    private static final int WARMUP_QUERIES = 20;
+    private static final int INSERT_BATCH = 1000;
+    // A first page plus the extra hit that tells whether another page exists
+    private static final int PAGE_SIZE = SearchService.DEFAULT_PAGE_SIZE + 1;
+    private static final String URL_PREFIX = "bench://";
+
+    // Common characters, so generated text has realistic bigram overlap; shared with PinyinSearchBenchmark
+    static final String CHARACTERS =
+            "的一是在不了有和人这中大为上个国我以要他时来用们生到作地于出就分对成会可主发年动同工也能下过子说产种面而方后多定行学法所民得经" +
+            "十三之进着等部度家电力里如水化高自二理起小物现实加量都两体制机当使点从业本去把性好应开它合还因由其些然前外天政四日那社义事平形相" +
+            "全表间样与关各重新线内数正心反你明看原又么利比或但质气第向道命此变条只没结解问意建月公无系军很情者最立代想已通并提直题党程展五果";
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    @Autowired
+    private SearchItemRepository searchItemRepository;
+
+    private final Random random = new Random(42);
+
+    @Test
+    void run() {
+        Integer foreign = jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM search_items WHERE url NOT LIKE ?", Integer.class, URL_PREFIX + "%");
+        assertThat(foreign)
+                .as("rows in search_items not created by the benchmark; refusing to run")
+                .isZero();
+
+        List<String> queries = new ArrayList<>();
+        for (int size : SIZES) {
+            seedUpTo(size, queries);
+            // Queries are plain CJK text, so the LIKE pattern needs no escaping
+            measure(size, "like", queries,
+                    q -> searchItemRepository.findPageContaining("%" + q + "%", 0, Limit.of(PAGE_SIZE)).size());
+            measure(size, "fulltext", queries,
+                    q -> searchItemRepository.findFulltextPage(SearchText.toFulltextQuery(q), 0, PAGE_SIZE).size());
+        }
+    }
+
+    private void seedUpTo(int size, List<String> queries) {
+        Integer current = jdbcTemplate.queryForObject("SELECT COUNT(*) FROM search_items", Integer.class);
+        int missing = size - (current == null ? 0 : current);
+        long start = System.currentTimeMillis();
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        while (missing > 0) {
+            int batch = Math.min(INSERT_BATCH, missing);
+            List<Object[]> rows = new ArrayList<>(batch);
+            for (int i = 0; i < batch; i++) {
+                String title = text(8, 20);
+                rows.add(new Object[]{title, text(40, 200), URL_PREFIX + random.nextLong(), now, now});
+                if (queries.size() < QUERIES) {
+                    // Queries are substrings of real titles, 2 to 4 characters long
+                    int length = 2 + random.nextInt(3);
+                    int offset = random.nextInt(title.length() - length + 1);
+                    queries.add(title.substring(offset, offset + length));
+                }
+            }
+            jdbcTemplate.batchUpdate(
+                    "INSERT INTO search_items (title, description, url, created_at, updated_at) VALUES (?, ?, ?, ?, ?)",
+                    rows);
+            missing -= batch;
+        }
+        logger.info("Seeded search_items to {} rows in {}ms", size, System.currentTimeMillis() - start);
+    }
+
+    private void measure(int size, String mode, List<String> queries, Function<String, Integer> search) {
+        for (int i = 0; i < WARMUP_QUERIES; i++) {
+            search.apply(queries.get(i % queries.size()));
+        }
+        long[] nanos = new long[queries.size()];
+        long hits = 0;
+        for (int i = 0; i < queries.size(); i++) {
+            long start = System.nanoTime();
+            hits += search.apply(queries.get(i));
+            nanos[i] = System.nanoTime() - start;
+        }
+        Arrays.sort(nanos);
+        double mean = Arrays.stream(nanos).average().orElse(0) / 1_000_000.0;
+        logger.info("Search benchmark - rows: {}, mode: {}, mean: {}ms, p50: {}ms, p95: {}ms, avg hits: {}",
+                size, mode,
+                String.format("%.2f", mean),
+                String.format("%.2f", nanos[nanos.length / 2] / 1_000_000.0),
+                String.format("%.2f", nanos[(int) (nanos.length * 0.95)] / 1_000_000.0),
+                hits / queries.size());
+    }
+
+    private String text(int minLength, int maxLength) {
+        int length = minLength + random.nextInt(maxLength - minLength + 1);
+        StringBuilder builder = new StringBuilder(length);
+        for (int i = 0; i < length; i++) {
+            builder.append(CHARACTERS.charAt(random.nextInt(CHARACTERS.length())));
+        }
+        return builder.toString();
+    }
+}
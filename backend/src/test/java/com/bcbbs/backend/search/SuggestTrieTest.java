@@ -0,0 +1,64 @@
+package com.bcbbs.backend.search;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class SuggestTrieTest {
+
+    @Test
+    void ranksByCountThenLengthThenAlphabetically() {
+        SuggestTrie trie = SuggestTrie.build(List.of(
+                "abd", "abc", "abd", "abc",
+                "abyy", "abx", "ab"), 10);
+
+        // abc and abd tie on count and length; ab, abx and abyy tie on count only
+        assertThat(trie.suggest("ab", 10)).containsExactly("abc", "abd", "ab", "abx", "abyy");
+        assertThat(trie.size()).isEqualTo(5);
+    }
+
+    @Test
+    void keyThatPrefixesAnotherKeyIsItsOwnCompletion() {
+        SuggestTrie trie = SuggestTrie.build(List.of("cart", "car", "cart", "cartoon"), 10);
+
+        assertThat(trie.suggest("car", 10)).containsExactly("cart", "car", "cartoon");
+        assertThat(trie.suggest("cart", 10)).containsExactly("cart", "cartoon");
+        assertThat(trie.suggest("carto", 10)).containsExactly("cartoon");
+        assertThat(trie.suggest("cartoons", 10)).isEmpty();
+    }
+
+    @Test
+    void prefixMayEndInsideAnEdgeLabel() {
+        // "application" and "apply" share the collapsed edge "appl"
+        SuggestTrie trie = SuggestTrie.build(List.of("application", "apply", "banana"), 10);
+
+        assertThat(trie.suggest("a", 10)).containsExactly("apply", "application");
+        assertThat(trie.suggest("ap", 10)).containsExactly("apply", "application");
+        assertThat(trie.suggest("appli", 10)).containsExactly("application");
+        assertThat(trie.suggest("applic", 10)).containsExactly("application");
+        assertThat(trie.suggest("apx", 10)).isEmpty();
+        assertThat(trie.suggest("applix", 10)).isEmpty();
+    }
+
+    @Test
+    void limitAboveKReturnsTheKBest() {
+        SuggestTrie trie = SuggestTrie.build(List.of("item a", "item b", "item c", "item d", "item e"), 2);
+
+        assertThat(trie.suggest("item", 10)).containsExactly("item a", "item b");
+        assertThat(trie.suggest("item", 1)).containsExactly("item a");
+        // Below the root as well, each node keeps only k completions
+        assertThat(trie.suggest("item d", 10)).containsExactly("item d");
+    }
+
+    @Test
+    void titlesAreMatchedNormalizedAndShownAsFirstSeen() {
+        SuggestTrie trie = SuggestTrie.build(List.of(" Hello World ", "hello world", "ＨＥＬＬＯ there"), 10);
+
+        assertThat(trie.suggest("HELLO", 10)).containsExactly("Hello World", "ＨＥＬＬＯ there");
+        assertThat(trie.suggest("ｈｅｌｌｏ ｗ", 10)).containsExactly("Hello World");
+        assertThat(trie.suggest("   ", 10)).isEmpty();
+        assertThat(SuggestTrie.EMPTY.suggest("a", 10)).isEmpty();
+    }
+}
@@ -0,0 +1,114 @@
+package com.bcbbs.backend.security;
+
+import com.bcbbs.backend.entity.User;
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.io.Decoders;
+import io.jsonwebtoken.security.Keys;
+import org.junit.jupiter.api.Test;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import javax.crypto.SecretKey;
+import java.util.Date;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Per-request cost of authenticating a bearer token:
+ * <ul>
+ *     <li>{@code tripleParse} - the previous filter path: the key decoded and a parser built for each of
+ *     three parses (extractUsername, then isTokenValid's username and expiration checks)</li>
+ *     <li>{@code verifyColdCache} - {@link JwtService#verify} with the verified-token cache disabled,
+ *     i.e. one parse with the shared parser</li>
+ *     <li>{@code verifyCachedDigest} - {@link JwtService#verify} hitting the verified-token cache</li>
+ * </ul>
+ * Not part of the regular test run; start it with
+ * {@code mvn test -Dtest=JwtVerifyBenchmark -Dsurefire.failIfNoSpecifiedTests=false}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class JwtVerifyBenchmark {
+
+    private static final String SECRET =
+            "YmNiYnMzLWJhY2tlbmQtand0LXNlY3JldC1rZXktMjAyNi1wcm9kdWN0aW9uLXNlY3VyZS10b2tlbg==";
+
+    private JwtService cachingService;
+    private JwtService uncachedService;
+    private String token;
+
+    @Setup
+    public void setUp() {
+        cachingService = jwtService(300);
+        // A zero TTL expires every entry on creation, so each call parses
+        uncachedService = jwtService(0);
+        token = cachingService.generateToken(User.builder()
+                .id(1L)
+                .username("benchmark")
+                .email("benchmark@example.com")
+                .role(User.Role.USER)
+                .tokenVersion(0)
+                .build());
+        // Populate the cache so verifyCachedDigest measures hits only
+        cachingService.verify(token);
+    }
+
+    @Benchmark
+    public boolean tripleParse() {
+        String username = parse(token).getSubject();
+        return username.equals(parse(token).getSubject()) && !parse(token).getExpiration().before(new Date());
+    }
+
+    @Benchmark
+    public Optional<VerifiedToken> verifyColdCache() {
+        return uncachedService.verify(token);
+    }
+
+    @Benchmark
+    public Optional<VerifiedToken> verifyCachedDigest() {
+        return cachingService.verify(token);
+    }
+
+    @Test
+    void run() throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(JwtVerifyBenchmark.class.getSimpleName())
+                .build())
+                .run();
+    }
+
+    private static Claims parse(String token) {
+        SecretKey key = Keys.hmacShaKeyFor(Decoders.BASE64.decode(SECRET));
+        return Jwts.parser()
+                .verifyWith(key)
+                .build()
+                .parseSignedClaims(token)
+                .getPayload();
+    }
+
+    private static JwtService jwtService(long cacheTtlSeconds) {
+        JwtService service = new JwtService();
+        ReflectionTestUtils.setField(service, "secretKey", SECRET);
+        ReflectionTestUtils.setField(service, "jwtExpiration", 86_400_000L);
+        ReflectionTestUtils.setField(service, "verifiedCacheMaxSize", 10_000L);
+        ReflectionTestUtils.setField(service, "verifiedCacheMaxTtlSeconds", cacheTtlSeconds);
+        service.init();
+        return service;
+    }
+}
@@ -73,18 +73,43 @@ export const healthApi = {
 // Search API
 export const searchApi = {
   // Add t parameter to avoid occasional issues caused by intermediate caching/WAF false positives (backend ignores unknown parameters)
-  search: (keyword: string) => api.get('/public/search', { params: { q: keyword, t: Date.now() } })
+  // Results are paged: pass the previous response's nextCursor to load the next page
+  search: (keyword: string, cursor?: string) =>
+    api.get('/public/search', { params: { q: keyword, cursor, t: Date.now() } }),
+
+  // Title completions for autocomplete (served from memory, safe to call per keystroke)
+  suggest: (prefix: string) => api.get('/public/search/suggest', { params: { q: prefix } })
 }
 
 // Lines API
 export const linesApi = {
-  // Add t parameter to avoid occasional issues caused by intermediate caching/WAF false positives (backend ignores unknown parameters)
-  getLines: (type: 'MEMBER' | 'AGENT') => api.get('/public/lines', { params: { type, t: Date.now() } })
+  // Served with an ETag and "Cache-Control: no-cache": the browser revalidates every call and
+  // reuses its cached copy on 304, so no cache-busting parameter is needed
+  getLines: (type: 'MEMBER' | 'AGENT') => api.get('/public/lines', { params: { type } }),
+  // Server-Sent Events: a "snapshot" event (same JSON and order as getLines), then "delta" events on
+  // changes, whose "order" also follows the client's preferred lines. EventSource reconnects by
+  // itself and receives a fresh snapshot.
+  streamLines: (type: 'MEMBER' | 'AGENT') =>
+    new EventSource(`${api.defaults.baseURL}/public/lines/stream?type=${type}`),
+  // Lines ranked by recent latency and failure rate, best first
+  getBestLines: (type: 'MEMBER' | 'AGENT') => api.get('/public/lines/best', { params: { type } }),
+  // Latencies measured in the browser; latencyMs null means the line could not be reached
+  reportLatency: (samples: { lineId: number; latencyMs: number | null }[]) =>
+    api.post('/public/lines/latency', { samples })
 }
 
 // Captcha API
 export const captchaApi = {
-  getCaptcha: () => api.get('/public/captcha')
+  // Code as JSON for drawing in the page; only served while server-rendered images are disabled
+  getCaptcha: () => api.get('/public/captcha'),
+  // Server-rendered PNG with the token in the X-Captcha-Token header. Sent without the response
+  // interceptor, which would drop the headers and report the 404 of disabled images as an error
+  getCaptchaImage: () =>
+    axios.get<Blob>('/public/captcha/image', {
+      baseURL: api.defaults.baseURL,
+      timeout: api.defaults.timeout,
+      responseType: 'blob'
+    })
 }
 
 // Change Password API